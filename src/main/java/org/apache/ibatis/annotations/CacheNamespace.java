@@ -38,6 +38,24 @@ public @interface CacheNamespace {
 
   long flushInterval() default 0;
 
+  /**
+   * Milliseconds each entry stays in the cache.
+   * @since 3.4.7
+   */
+  long timeToLive() default 0;
+
+  /**
+   * Maximum milliseconds subtracted at random from the timeToLive of each entry.
+   * @since 3.4.7
+   */
+  long timeToLiveJitter() default 0;
+
+  /**
+   * Milliseconds before expiry in which one caller reloads the entry while others still read it.
+   * @since 3.4.7
+   */
+  long refreshAhead() default 0;
+
   int size() default 1024;
 
   boolean readWrite() default true;
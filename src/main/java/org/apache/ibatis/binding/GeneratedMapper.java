@@ -0,0 +1,64 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * 由{@link GeneratedMapperFactory}生成的mapper实现类的父类
+ * <p>
+ * 生成的方法直接调用sqlSession，其他方法通过{@link #execute(int, Object[])}交给对应的MapperMethod执行
+ *
+ * @since 3.4.7
+ */
+public abstract class GeneratedMapper {
+
+    protected final SqlSession sqlSession;
+    private final GeneratedMapperFactory<?> factory;
+
+    protected GeneratedMapper(SqlSession sqlSession, GeneratedMapperFactory<?> factory) {
+        this.sqlSession = sqlSession;
+        this.factory = factory;
+    }
+
+    /**
+     * 使用第index个方法的MapperMethod执行
+     *
+     * @param index
+     * @param args
+     * @return
+     */
+    protected final Object execute(int index, Object[] args) {
+        return factory.getMapperMethod(index, sqlSession).execute(sqlSession, args);
+    }
+
+    /**
+     * 返回值为primitive类型的select方法查询结果为null时抛出的异常，与MapperMethod一致
+     *
+     * @param index
+     * @return
+     */
+    protected final BindingException nullResult(int index) {
+        MapperMethod mapperMethod = factory.getMapperMethod(index, sqlSession);
+        return new BindingException("Mapper method '" + mapperMethod.getCommand().getName()
+                + " attempted to return null from a method with a primitive return type (" + mapperMethod.getMethodSignature().getReturnType() + ").");
+    }
+
+    @Override
+    public String toString() {
+        return "Generated mapper of " + factory.getMapperInterface().getName();
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.binding.MapperMethod.MethodSignature;
+import org.apache.ibatis.binding.MapperMethod.SqlCommand;
+import org.apache.ibatis.binding.MapperProxy.MapperMethodInvoker;
+import org.apache.ibatis.binding.MapperProxy.PlainMethodInvoker;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 使用javassist为mapper接口生成实现类，代替JDK动态代理
+ * <p>
+ * 参数不超过一个的insert、update、delete、selectOne、selectList方法直接调用SqlSession，
+ * 其他方法交给MapperMethod执行，default方法由接口本身实现。
+ * 接口或者方法中的类型不是public时无法生成，仍然使用MapperProxy
+ *
+ * @since 3.4.7
+ */
+public class GeneratedMapperFactory<T> extends MapperProxyFactory<T> {
+
+    private static final Log log = LogFactory.getLog(GeneratedMapperFactory.class);
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    // 是否已经尝试过生成
+    private volatile boolean generated;
+    // 生成类的构造方法，为null时使用MapperProxy
+    private volatile Constructor<? extends T> constructor;
+    // 生成类中第i个方法对应的Method和MapperMethod
+    private Method[] methods;
+    private MapperMethod[] mapperMethods;
+
+    public GeneratedMapperFactory(Class<T> mapperInterface) {
+        super(mapperInterface);
+    }
+
+    @Override
+    public T newInstance(SqlSession sqlSession) {
+        if (!generated) {
+            generate();
+        }
+        Constructor<? extends T> constructor = this.constructor;
+        if (constructor == null) {
+            return super.newInstance(sqlSession);
+        }
+        try {
+            return constructor.newInstance(sqlSession, this);
+        } catch (InvocationTargetException e) {
+            throw new BindingException("Error creating the generated mapper of " + getMapperInterface().getName() + ". Cause: " + e.getTargetException(), e.getTargetException());
+        } catch (Exception e) {
+            throw new BindingException("Error creating the generated mapper of " + getMapperInterface().getName() + ". Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 获取第index个方法对应的MapperMethod，注册时没有解析成功的方法在第一次调用时解析
+     *
+     * @param index
+     * @param sqlSession
+     * @return
+     */
+    MapperMethod getMapperMethod(int index, SqlSession sqlSession) {
+        MapperMethod mapperMethod = mapperMethods[index];
+        if (mapperMethod == null) {
+            Method method = methods[index];
+            Map<Method, MapperMethod> methodCache = getMethodCache();
+            mapperMethod = methodCache.get(method);
+            if (mapperMethod == null) {
+                mapperMethod = new MapperMethod(getMapperInterface(), method, sqlSession.getConfiguration());
+                // 与MapperProxy共用同一个MapperMethod
+                if (methodCache instanceof ConcurrentMap) {
+                    MapperMethod previous = ((ConcurrentMap<Method, MapperMethod>) methodCache).putIfAbsent(method, mapperMethod);
+                    if (previous != null) {
+                        mapperMethod = previous;
+                    }
+                } else {
+                    methodCache.put(method, mapperMethod);
+                }
+            }
+        }
+        return mapperMethod;
+    }
+
+    private synchronized void generate() {
+        if (generated) {
+            return;
+        }
+        Map<Method, MapperMethodInvoker> methodTable = getResolvedMethodTable();
+        if (methodTable == null) {
+            // statement还没有全部解析完成，暂时使用MapperProxy
+            return;
+        }
+        try {
+            constructor = generateClass(methodTable);
+        } catch (Throwable t) {
+            if (log.isDebugEnabled()) {
+                log.debug("Could not generate a class for mapper " + getMapperInterface().getName() + ", using a proxy. Cause: " + ExceptionUtil.unwrapThrowable(t));
+            }
+        }
+        generated = true;
+    }
+
+    private Constructor<? extends T> generateClass(Map<Method, MapperMethodInvoker> methodTable) throws Exception {
+        Class<T> mapperInterface = getMapperInterface();
+        ClassLoader classLoader = mapperInterface.getClassLoader();
+        if (!isPublic(mapperInterface) || classLoader == null
+                || Class.forName(GeneratedMapper.class.getName(), false, classLoader) != GeneratedMapper.class) {
+            return null;
+        }
+        List<Method> methodList = new ArrayList<Method>();
+        for (Method method : mapperInterface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || MapperProxy.isDefaultMethod(method)) {
+                continue;
+            }
+            if (!isPublic(method.getReturnType())) {
+                return null;
+            }
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                if (!isPublic(parameterType)) {
+                    return null;
+                }
+            }
+            methodList.add(method);
+        }
+        methods = methodList.toArray(new Method[methodList.size()]);
+        mapperMethods = new MapperMethod[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            MapperMethodInvoker invoker = methodTable.get(methods[i]);
+            if (invoker instanceof PlainMethodInvoker) {
+                mapperMethods[i] = ((PlainMethodInvoker) invoker).getMapperMethod();
+            }
+        }
+
+        ClassPool pool = new ClassPool(true);
+        pool.insertClassPath(new ClassClassPath(GeneratedMapper.class));
+        pool.insertClassPath(new LoaderClassPath(classLoader));
+        String className = mapperInterface.getName() + "$$GeneratedMapper$$" + classCounter.incrementAndGet();
+        CtClass ctClass = pool.makeClass(className, pool.get(GeneratedMapper.class.getName()));
+        ctClass.addInterface(pool.get(mapperInterface.getName()));
+        ctClass.addConstructor(CtNewConstructor.make("public " + simpleName(className) + "(" + SqlSession.class.getName() + " sqlSession, "
+                + GeneratedMapperFactory.class.getName() + " factory) { super($1, $2); }", ctClass));
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            CtClass[] parameters = new CtClass[parameterTypes.length];
+            for (int j = 0; j < parameterTypes.length; j++) {
+                parameters[j] = pool.get(typeName(parameterTypes[j]));
+            }
+            ctClass.addMethod(CtNewMethod.make(Modifier.PUBLIC, pool.get(typeName(method.getReturnType())), method.getName(),
+                    parameters, null, methodBody(i, method, mapperMethods[i]), ctClass));
+        }
+        byte[] bytecode = ctClass.toBytecode();
+        ctClass.detach();
+        @SuppressWarnings("unchecked")
+        Class<? extends T> generatedClass = (Class<? extends T>) new GeneratedClassLoader(classLoader).define(className, bytecode);
+        return generatedClass.getConstructor(SqlSession.class, GeneratedMapperFactory.class);
+    }
+
+    /**
+     * 生成第index个方法的方法体
+     */
+    private static String methodBody(int index, Method method, MapperMethod mapperMethod) {
+        String fallback = "{ return ($r) execute(" + index + ", $args); }";
+        if (mapperMethod == null) {
+            return fallback;
+        }
+        String param = parameterExpression(method);
+        SqlCommand command = mapperMethod.getCommand();
+        MethodSignature signature = mapperMethod.getMethodSignature();
+        Class<?> returnType = method.getReturnType();
+        if (param == null || !returnType.equals(signature.getReturnType())) {
+            return fallback;
+        }
+        String statement = "\"" + command.getName().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        SqlCommandType type = command.getType();
+        if (type == SqlCommandType.INSERT || type == SqlCommandType.UPDATE || type == SqlCommandType.DELETE) {
+            // 同MapperMethod.rowCountResult
+            String rowCount = "sqlSession." + type.name().toLowerCase(Locale.ENGLISH) + "(" + statement + ", " + param + ")";
+            if (returnType == void.class) {
+                return "{ " + rowCount + "; }";
+            } else if (returnType == int.class) {
+                return "{ return " + rowCount + "; }";
+            } else if (returnType == Integer.class) {
+                return "{ return Integer.valueOf(" + rowCount + "); }";
+            } else if (returnType == long.class) {
+                return "{ return (long) " + rowCount + "; }";
+            } else if (returnType == Long.class) {
+                return "{ return Long.valueOf((long) " + rowCount + "); }";
+            } else if (returnType == boolean.class) {
+                return "{ return " + rowCount + " > 0; }";
+            } else if (returnType == Boolean.class) {
+                return "{ return Boolean.valueOf(" + rowCount + " > 0); }";
+            }
+        } else if (type == SqlCommandType.SELECT && !signature.returnsVoid() && !signature.returnsMap() && !signature.returnsCursor()) {
+            if (!signature.returnsMany()) {
+                String selectOne = "sqlSession.selectOne(" + statement + ", " + param + ")";
+                if (returnType.isPrimitive()) {
+                    return "{ Object result = " + selectOne + "; if (result == null) { throw nullResult(" + index + "); } return ($r) result; }";
+                }
+                return "{ return ($r) " + selectOne + "; }";
+            } else if (returnType == List.class || returnType == Collection.class) {
+                return "{ return sqlSession.selectList(" + statement + ", " + param + "); }";
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * 同ParamNameResolver.getNamedParams，只处理没有参数和只有一个没有@Param的参数的方法，其他返回null
+     */
+    private static String parameterExpression(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 0) {
+            return "null";
+        }
+        if (parameterTypes.length > 1 || RowBounds.class.isAssignableFrom(parameterTypes[0])
+                || ResultHandler.class.isAssignableFrom(parameterTypes[0])) {
+            return null;
+        }
+        for (Annotation annotation : method.getParameterAnnotations()[0]) {
+            if (annotation instanceof Param) {
+                return null;
+            }
+        }
+        return "($w) $1";
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    private static String typeName(Class<?> type) {
+        return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * 加载生成的类，父ClassLoader为mapper接口的ClassLoader
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+
+}
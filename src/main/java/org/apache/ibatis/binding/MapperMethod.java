@@ -1,5 +1,5 @@
 /**
- * Copyright 2009-2017 the original author or authors.
+ * Copyright 2009-2018 the original author or authors.
  * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,6 +59,14 @@ public class MapperMethod {
         this.method = new MethodSignature(config, mapperInterface, method);
     }
 
+    SqlCommand getCommand() {
+        return command;
+    }
+
+    MethodSignature getMethodSignature() {
+        return method;
+    }
+
     /**
      * method具体的执行逻辑
      *
@@ -1,5 +1,5 @@
 /**
- * Copyright 2009-2017 the original author or authors.
+ * Copyright 2009-2018 the original author or authors.
  * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,12 +20,16 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 import org.apache.ibatis.session.SqlSession;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * mapper接口的InvocationHandler，不存在实际的被代理对象，method的执行通过sqlSession最终调用
@@ -39,15 +43,27 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
     private final SqlSession sqlSession;
     private final Class<T> mapperInterface;
     private final Map<Method, MapperMethod> methodCache;
+    // 注册mapper时预先解析好的MapperMethodInvoker，不可变
+    private final Map<Method, MapperMethodInvoker> methodTable;
 
     public MapperProxy(SqlSession sqlSession, Class<T> mapperInterface, Map<Method, MapperMethod> methodCache) {
+        this(sqlSession, mapperInterface, methodCache, Collections.<Method, MapperMethodInvoker>emptyMap());
+    }
+
+    MapperProxy(SqlSession sqlSession, Class<T> mapperInterface, Map<Method, MapperMethod> methodCache, Map<Method, MapperMethodInvoker> methodTable) {
         this.sqlSession = sqlSession;
         this.mapperInterface = mapperInterface;
         this.methodCache = methodCache;
+        this.methodTable = methodTable;
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        // 预先解析好的方法，一次查找即可
+        final MapperMethodInvoker invoker = methodTable.get(method);
+        if (invoker != null) {
+            return invoker.invoke(proxy, args, sqlSession);
+        }
         try {
             // 如果是Object的方法，直接执行
             if (Object.class.equals(method.getDeclaringClass())) {
@@ -74,7 +90,14 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
         MapperMethod mapperMethod = methodCache.get(method);
         if (mapperMethod == null) {
             mapperMethod = new MapperMethod(mapperInterface, method, sqlSession.getConfiguration());
-            methodCache.put(method, mapperMethod);
+            if (methodCache instanceof ConcurrentMap) {
+                MapperMethod previous = ((ConcurrentMap<Method, MapperMethod>) methodCache).putIfAbsent(method, mapperMethod);
+                if (previous != null) {
+                    mapperMethod = previous;
+                }
+            } else {
+                methodCache.put(method, mapperMethod);
+            }
         }
         return mapperMethod;
     }
@@ -91,25 +114,105 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
     @UsesJava7
     private Object invokeDefaultMethod(Object proxy, Method method, Object[] args)
             throws Throwable {
-        final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
-                .getDeclaredConstructor(Class.class, int.class);
-        if (!constructor.isAccessible()) {
-            constructor.setAccessible(true);
-        }
-        final Class<?> declaringClass = method.getDeclaringClass();
-        return constructor
-                .newInstance(declaringClass,
-                        MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
-                                | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC)
-                .unreflectSpecial(method, declaringClass).bindTo(proxy).invokeWithArguments(args);
+        return DefaultMethodInvoker.methodHandle(method).bindTo(proxy).invokeWithArguments(args);
     }
 
     /**
      * Backport of java.lang.reflect.Method#isDefault()
      */
-    private boolean isDefaultMethod(Method method) {
+    static boolean isDefaultMethod(Method method) {
         return (method.getModifiers()
                 & (Modifier.ABSTRACT | Modifier.PUBLIC | Modifier.STATIC)) == Modifier.PUBLIC
                 && method.getDeclaringClass().isInterface();
     }
+
+    /**
+     * mapper方法的执行逻辑
+     */
+    interface MapperMethodInvoker {
+        Object invoke(Object proxy, Object[] args, SqlSession sqlSession) throws Throwable;
+    }
+
+    /**
+     * 执行MapperMethod
+     */
+    static class PlainMethodInvoker implements MapperMethodInvoker {
+        private final MapperMethod mapperMethod;
+
+        PlainMethodInvoker(MapperMethod mapperMethod) {
+            this.mapperMethod = mapperMethod;
+        }
+
+        MapperMethod getMapperMethod() {
+            return mapperMethod;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Object[] args, SqlSession sqlSession) throws Throwable {
+            return mapperMethod.execute(sqlSession, args);
+        }
+    }
+
+    /**
+     * 执行default方法，MethodHandle被转换为(Object, Object[])Object，调用时不需要bindTo
+     */
+    @UsesJava7
+    static class DefaultMethodInvoker implements MapperMethodInvoker {
+        private static final int ALLOWED_MODES = MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
+                | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC;
+        // jdk9以上使用MethodHandles.privateLookupIn
+        private static final Method privateLookupInMethod;
+
+        static {
+            Method method;
+            try {
+                method = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+            } catch (NoSuchMethodException e) {
+                method = null;
+            }
+            privateLookupInMethod = method;
+        }
+
+        private final MethodHandle methodHandle;
+
+        DefaultMethodInvoker(MethodHandle methodHandle) {
+            int parameterCount = methodHandle.type().parameterCount() - 1;
+            // 可变参数的方法也按照固定参数调用，参数已经由Proxy打包为数组
+            this.methodHandle = methodHandle.asFixedArity().asType(MethodType.genericMethodType(parameterCount + 1))
+                    .asSpreader(Object[].class, parameterCount);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Object[] args, SqlSession sqlSession) throws Throwable {
+            try {
+                return (Object) methodHandle.invokeExact(proxy, args);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+        }
+
+        /**
+         * 获取default方法对应的MethodHandle，类型为(declaringClass, 参数...)返回值
+         *
+         * @param method
+         * @return
+         * @throws Exception
+         */
+        static MethodHandle methodHandle(Method method) throws Exception {
+            final Class<?> declaringClass = method.getDeclaringClass();
+            if (privateLookupInMethod != null) {
+                MethodHandles.Lookup lookup = (MethodHandles.Lookup) privateLookupInMethod.invoke(null, declaringClass, MethodHandles.lookup());
+                return lookup.findSpecial(declaringClass, method.getName(),
+                        MethodType.methodType(method.getReturnType(), method.getParameterTypes()), declaringClass);
+            }
+            final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
+                    .getDeclaredConstructor(Class.class, int.class);
+            if (!constructor.isAccessible()) {
+                constructor.setAccessible(true);
+            }
+            return constructor
+                    .newInstance(declaringClass, ALLOWED_MODES)
+                    .unreflectSpecial(method, declaringClass);
+        }
+    }
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,10 +15,18 @@
  */
 package org.apache.ibatis.binding;
 
+import org.apache.ibatis.binding.MapperProxy.DefaultMethodInvoker;
+import org.apache.ibatis.binding.MapperProxy.MapperMethodInvoker;
+import org.apache.ibatis.binding.MapperProxy.PlainMethodInvoker;
+import org.apache.ibatis.reflection.Jdk;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -30,6 +38,10 @@ public class MapperProxyFactory<T> {
   private final Class<T> mapperInterface;
   // new MapperProxy会作为参数传入，如果一个方法已经调用过，就会被cache
   private final Map<Method, MapperMethod> methodCache = new ConcurrentHashMap<Method, MapperMethod>();
+  // 第一次newInstance时解析的方法表，解析完成后不再修改
+  private volatile Map<Method, MapperMethodInvoker> methodTable = Collections.emptyMap();
+  // 注册时记录configuration，等到第一次newInstance时再解析方法表
+  private volatile Configuration pendingConfiguration;
 
   public MapperProxyFactory(Class<T> mapperInterface) {
     this.mapperInterface = mapperInterface;
@@ -43,13 +55,82 @@ public class MapperProxyFactory<T> {
     return methodCache;
   }
 
+  /**
+   * Resolves the MapperMethod of every mapped method and the MethodHandle of every default method on the first
+   * {@link #newInstance(SqlSession)}, so that a call on a mapper is a single lookup. This is not done when the mapper
+   * is added because MapperMethod reads settings such as useActualParamName and the ObjectFactory, which may still be
+   * changed afterwards, and it waits until the configuration has no incomplete statements, because resolving a
+   * statement would try to build them. Methods that cannot be resolved are left to the first call, which reports the
+   * error as before.
+   *
+   * @since 3.4.7
+   */
+  void resolveMethods(Configuration configuration) {
+    pendingConfiguration = configuration;
+  }
+
+  /**
+   * Returns the resolved methods, or null while they are pending.
+   */
+  Map<Method, MapperMethodInvoker> getResolvedMethodTable() {
+    Map<Method, MapperMethodInvoker> table = getMethodTable();
+    return pendingConfiguration == null ? table : null;
+  }
+
+  Map<Method, MapperMethodInvoker> getMethodTable() {
+    if (pendingConfiguration != null) {
+      resolvePendingMethods();
+    }
+    return methodTable;
+  }
+
+  private synchronized void resolvePendingMethods() {
+    Configuration configuration = pendingConfiguration;
+    if (configuration != null && !hasIncompleteElements(configuration)) {
+      methodTable = buildMethodTable(configuration);
+      pendingConfiguration = null;
+    }
+  }
+
+  private Map<Method, MapperMethodInvoker> buildMethodTable(Configuration configuration) {
+    Map<Method, MapperMethodInvoker> table = new HashMap<Method, MapperMethodInvoker>();
+    for (Method method : mapperInterface.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      if (MapperProxy.isDefaultMethod(method)) {
+        if (Jdk.methodHandleExists) {
+          try {
+            table.put(method, new DefaultMethodInvoker(DefaultMethodInvoker.methodHandle(method)));
+          } catch (Exception e) {
+            // ignore, resolved (and reported) on first call
+          }
+        }
+      } else {
+        try {
+          table.put(method, new PlainMethodInvoker(new MapperMethod(mapperInterface, method, configuration)));
+        } catch (BindingException e) {
+          // ignore, resolved (and reported) on first call
+        }
+      }
+    }
+    return Collections.unmodifiableMap(table);
+  }
+
+  private static boolean hasIncompleteElements(Configuration configuration) {
+    return !configuration.getIncompleteStatements().isEmpty()
+        || !configuration.getIncompleteResultMaps().isEmpty()
+        || !configuration.getIncompleteCacheRefs().isEmpty()
+        || !configuration.getIncompleteMethods().isEmpty();
+  }
+
   @SuppressWarnings("unchecked")
   protected T newInstance(MapperProxy<T> mapperProxy) {
     return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class[] { mapperInterface }, mapperProxy);
   }
 
   public T newInstance(SqlSession sqlSession) {
-    final MapperProxy<T> mapperProxy = new MapperProxy<T>(sqlSession, mapperInterface, methodCache);
+    final MapperProxy<T> mapperProxy = new MapperProxy<T>(sqlSession, mapperInterface, methodCache, getMethodTable());
     return newInstance(mapperProxy);
   }
 
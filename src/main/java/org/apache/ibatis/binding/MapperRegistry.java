@@ -1,5 +1,5 @@
 /**
- * Copyright 2009-2015 the original author or authors.
+ * Copyright 2009-2018 the original author or authors.
  * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -80,12 +80,16 @@ public class MapperRegistry {
             }
             boolean loadCompleted = false;
             try {
-                knownMappers.put(type, new MapperProxyFactory<T>(type));
+                MapperProxyFactory<T> mapperProxyFactory = config.isGenerateMapperClasses()
+                        ? new GeneratedMapperFactory<T>(type) : new MapperProxyFactory<T>(type);
+                knownMappers.put(type, mapperProxyFactory);
                 // It's important that the type is added before the parser is run
                 // otherwise the binding may automatically be attempted by the
                 // mapper parser. If the type is already known, it won't try.
                 MapperAnnotationBuilder parser = new MapperAnnotationBuilder(config, type);
                 parser.parse();
+                // 第一次getMapper时再解析所有方法
+                mapperProxyFactory.resolveMethods(config);
                 loadCompleted = true;
             } finally {
                 if (!loadCompleted) {
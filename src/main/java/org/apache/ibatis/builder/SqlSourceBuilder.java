@@ -46,6 +46,15 @@ public class SqlSourceBuilder extends BaseBuilder {
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
   }
 
+  /**
+   * Builds the mapping of a single #{} placeholder the same way {@link #parse} does.
+   *
+   * @param content the text between #{ and }
+   */
+  public ParameterMapping buildParameterMapping(String content, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    return new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters).buildParameterMapping(content);
+  }
+
   private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
 
     private List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
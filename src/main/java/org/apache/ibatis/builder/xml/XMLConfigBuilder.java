@@ -43,6 +43,7 @@ import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.StatementCacheScope;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -261,6 +262,18 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setCompileDynamicSql(booleanValueOf(props.getProperty("compileDynamicSql"), false));
+    configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 0));
+    configuration.setCompileExpressions(booleanValueOf(props.getProperty("compileExpressions"), false));
+    configuration.setGenerateMapperClasses(booleanValueOf(props.getProperty("generateMapperClasses"), false));
+    configuration.setReadColumnsByIndex(booleanValueOf(props.getProperty("readColumnsByIndex"), false));
+    configuration.setAutoMappingCacheSize(integerValueOf(props.getProperty("autoMappingCacheSize"), 256));
+    configuration.setGroupBatchStatements(booleanValueOf(props.getProperty("groupBatchStatements"), false));
+    configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), 0));
+    configuration.setMultiRowInsertSize(integerValueOf(props.getProperty("multiRowInsertSize"), 0));
+    configuration.setBatchPipelineDepth(integerValueOf(props.getProperty("batchPipelineDepth"), 0));
+    configuration.setStatementCacheSize(integerValueOf(props.getProperty("statementCacheSize"), 0));
+    configuration.setStatementCacheScope(StatementCacheScope.valueOf(props.getProperty("statementCacheScope", "SESSION")));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     @SuppressWarnings("unchecked")
     Class<? extends Log> logImpl = (Class<? extends Log>)resolveClass(props.getProperty("logImpl"));
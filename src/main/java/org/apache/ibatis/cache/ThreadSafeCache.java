@@ -0,0 +1,28 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Marker for caches whose own state can be accessed concurrently without external locking.
+ * <p>
+ * 装饰器只保证自身的状态线程安全，整个缓存链是否线程安全还取决于被装饰的delegate
+ * CacheBuilder只有在base cache和所有装饰器都实现了该接口时，才不会再包装SynchronizedCache
+ *
+ * @see org.apache.ibatis.mapping.CacheBuilder
+ */
+public interface ThreadSafeCache extends Cache {
+
+}
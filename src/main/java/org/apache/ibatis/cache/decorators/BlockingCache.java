@@ -17,12 +17,12 @@ package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ThreadSafeCache;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Simple blocking decorator
@@ -32,19 +32,22 @@ import java.util.concurrent.locks.ReentrantLock;
  * This way, other threads will wait until this element is filled instead of hitting the database.
  * <p>
  * 为cache提供了阻塞功能，保证只有一个线程会到数据库中查找数据
+ * <p>
+ * 命中时不加锁；未命中时第一个线程登记为这个key的加载者，其他线程等待加载者put（或者removeObject）后再读取
+ * 加载者只在加载期间保存在loaders中，因此loaders的大小不超过同时未命中的key的数量
  *
  * @author Eduardo Macarron
  */
-public class BlockingCache implements Cache {
-    // 获取缓存锁（getObject时）的时间
+public class BlockingCache implements ThreadSafeCache {
+    // 等待其他线程加载的时间
     private long timeout;
     private final Cache delegate;
-    // 所有的lock
-    private final ConcurrentHashMap<Object, ReentrantLock> locks;
+    // 正在从数据库加载的key
+    private final ConcurrentHashMap<Object, Loader> loaders;
 
     public BlockingCache(Cache delegate) {
         this.delegate = delegate;
-        this.locks = new ConcurrentHashMap<Object, ReentrantLock>();
+        this.loaders = new ConcurrentHashMap<Object, Loader>();
     }
 
     @Override
@@ -58,7 +61,7 @@ public class BlockingCache implements Cache {
     }
 
     /**
-     * put成功后会{@link #releaseLock(Object)}
+     * put成功后会{@link #releaseLoader(Object)}，唤醒等待的线程
      *
      * @param key   Can be any object but usually it is a {@link CacheKey}
      * @param value The result of a select.
@@ -68,23 +71,36 @@ public class BlockingCache implements Cache {
         try {
             delegate.putObject(key, value);
         } finally {
-            releaseLock(key);
+            releaseLoader(key);
         }
     }
 
     /**
-     * get时先获取锁，如果从缓存中找到缓存对象，直接释放，否则这个线程就会一致持有这个锁，直到从数据库里查出来再调用{@link #putObject(Object, Object)}才会释放
-     * 这样就可以保证只会有一个线程去数据库里查询，其他线程会等待直到缓存中有数据
+     * 命中时直接返回，未命中时只有一个线程成为加载者并得到null，直到它从数据库里查出来再调用{@link #putObject(Object, Object)}
+     * 其他线程等待加载完成后再从缓存中读取
      *
      * @param key The key
      * @return
      */
     @Override
     public Object getObject(Object key) {
-        acquireLock(key);
         Object value = delegate.getObject(key);
-        if (value != null) {
-            releaseLock(key);
+        while (value == null) {
+            Loader loader = new Loader();
+            Loader current = loaders.putIfAbsent(key, loader);
+            if (current == null) {
+                // 登记之前其他加载者可能已经put并且释放了
+                value = delegate.getObject(key);
+                if (value != null) {
+                    releaseLoader(key);
+                }
+                return value;
+            }
+            if (current.owner == Thread.currentThread()) {
+                return null;
+            }
+            awaitLoader(key, current);
+            value = delegate.getObject(key);
         }
         return value;
     }
@@ -92,7 +108,7 @@ public class BlockingCache implements Cache {
     @Override
     public Object removeObject(Object key) {
         // despite of its name, this method is called only to release locks
-        releaseLock(key);
+        releaseLoader(key);
         return null;
     }
 
@@ -106,48 +122,30 @@ public class BlockingCache implements Cache {
         return null;
     }
 
-    /**
-     * 获取锁，锁不存在时就putIfAbsent
-     *
-     * @param key
-     * @return
-     */
-    private ReentrantLock getLockForKey(Object key) {
-        ReentrantLock lock = new ReentrantLock();
-        ReentrantLock previous = locks.putIfAbsent(key, lock);
-        return previous == null ? lock : previous;
-    }
-
-    /**
-     * 获取key对应的lock
-     *
-     * @param key
-     */
-    private void acquireLock(Object key) {
-        Lock lock = getLockForKey(key);
-        if (timeout > 0) {
-            try {
-                boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-                if (!acquired) {
+    private void awaitLoader(Object key, Loader loader) {
+        try {
+            if (timeout > 0) {
+                boolean released = loader.latch.await(timeout, TimeUnit.MILLISECONDS);
+                if (!released) {
                     throw new CacheException("Couldn't get a lock in " + timeout + " for the key " + key + " at the cache " + delegate.getId());
                 }
-            } catch (InterruptedException e) {
-                throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+            } else {
+                loader.latch.await();
             }
-        } else {
-            lock.lock();
+        } catch (InterruptedException e) {
+            throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
         }
     }
 
     /**
-     * 释放锁
+     * 当前线程是key的加载者时，移除加载者并唤醒等待的线程
      *
      * @param key
      */
-    private void releaseLock(Object key) {
-        ReentrantLock lock = locks.get(key);
-        if (lock.isHeldByCurrentThread()) {
-            lock.unlock();
+    private void releaseLoader(Object key) {
+        Loader loader = loaders.get(key);
+        if (loader != null && loader.owner == Thread.currentThread() && loaders.remove(key, loader)) {
+            loader.latch.countDown();
         }
     }
 
@@ -158,4 +156,11 @@ public class BlockingCache implements Cache {
     public void setTimeout(long timeout) {
         this.timeout = timeout;
     }
+
+    private static class Loader {
+
+        private final Thread owner = Thread.currentThread();
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+    }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * 按条目过期的缓存，与ScheduledCache一次清空整个缓存不同，每个条目在放入后timeToLive毫秒过期
+ * <p>
+ * jitter：每个条目的过期时间在[timeToLive - jitter, timeToLive]之间随机，避免同一时间放入的条目同时过期
+ * <p>
+ * refreshAhead：条目过期前refreshAhead毫秒内第一次读取的调用方得到一次未命中，由它重新查询数据库并放入新值，
+ * 其他调用方在此期间继续读取旧值，直到条目真正过期
+ */
+public class ExpiringCache implements ThreadSafeCache {
+
+    private final Cache delegate;
+    private final Random random = new Random();
+    protected long timeToLive;
+    protected long jitter;
+    protected long refreshAhead;
+
+    public ExpiringCache(Cache delegate) {
+        this.delegate = delegate;
+        this.timeToLive = 60 * 60 * 1000; // 1 hour
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public void setJitter(long jitter) {
+        this.jitter = jitter;
+    }
+
+    public void setRefreshAhead(long refreshAhead) {
+        this.refreshAhead = refreshAhead;
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public int getSize() {
+        // 包含已过期但还没有被读取到的条目
+        return delegate.getSize();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        if (value == null) {
+            // TransactionalCache为未命中的key放入null，不需要记录过期时间
+            delegate.putObject(key, null);
+        } else {
+            delegate.putObject(key, new Entry(value, System.currentTimeMillis() + nextTimeToLive()));
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Object value = delegate.getObject(key);
+        if (!(value instanceof Entry)) {
+            return value;
+        }
+        Entry entry = (Entry) value;
+        long now = System.currentTimeMillis();
+        if (now >= entry.expireAt) {
+            delegate.removeObject(key);
+            return null;
+        }
+        if (refreshAhead > 0 && now >= entry.expireAt - refreshAhead && entry.refreshing.compareAndSet(false, true)) {
+            // 只有一个调用方会重新加载，新值放入后替换当前条目
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        Object value = delegate.removeObject(key);
+        return value instanceof Entry ? ((Entry) value).value : value;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+        return null;
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return delegate.equals(obj);
+    }
+
+    private long nextTimeToLive() {
+        long bound = Math.min(jitter, timeToLive);
+        if (bound <= 0) {
+            return timeToLive;
+        }
+        return timeToLive - (long) (random.nextDouble() * bound);
+    }
+
+    private static class Entry {
+
+        private final Object value;
+        private final long expireAt;
+        // 是否已经有调用方在重新加载
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+    }
+
+}
@@ -16,32 +16,44 @@
 package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
-import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.cache.serializer.Serializer;
+import org.apache.ibatis.cache.serializer.SerializerFactory;
 import org.apache.ibatis.io.Resources;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
-import java.io.Serializable;
 import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * 提供序列化、反序列化功能
+ * 默认使用Java序列化，可以通过serializer属性换成ReflectorSerializer或者自定义的Serializer
  *
  * @author Clinton Begin
  */
-public class SerializedCache implements Cache {
+public class SerializedCache implements ThreadSafeCache {
 
     private final Cache delegate;
+    private Serializer serializer = new JavaSerializer();
 
     public SerializedCache(Cache delegate) {
         this.delegate = delegate;
     }
 
+    /**
+     * @param serializer java (the default), reflector or the name of a {@link Serializer} class
+     */
+    public void setSerializer(String serializer) {
+        this.serializer = SerializerFactory.create(serializer);
+    }
+
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
     @Override
     public String getId() {
         return delegate.getId();
@@ -60,11 +72,7 @@ public class SerializedCache implements Cache {
      */
     @Override
     public void putObject(Object key, Object object) {
-        if (object == null || object instanceof Serializable) {
-            delegate.putObject(key, serialize((Serializable) object));
-        } else {
-            throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
-        }
+        delegate.putObject(key, serializer.serialize(object));
     }
 
     /**
@@ -76,7 +84,7 @@ public class SerializedCache implements Cache {
     @Override
     public Object getObject(Object key) {
         Object object = delegate.getObject(key);
-        return object == null ? null : deserialize((byte[]) object);
+        return object == null ? null : serializer.deserialize((byte[]) object);
     }
 
     @Override
@@ -104,44 +112,6 @@ public class SerializedCache implements Cache {
         return delegate.equals(obj);
     }
 
-    /**
-     * 通过ObjectOutputStream序列化
-     *
-     * @param value
-     * @return
-     */
-    private byte[] serialize(Serializable value) {
-        try {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeObject(value);
-            oos.flush();
-            oos.close();
-            return bos.toByteArray();
-        } catch (Exception e) {
-            throw new CacheException("Error serializing object.  Cause: " + e, e);
-        }
-    }
-
-    /**
-     * 通过ObjectInputStream反序列化
-     *
-     * @param value
-     * @return
-     */
-    private Serializable deserialize(byte[] value) {
-        Serializable result;
-        try {
-            ByteArrayInputStream bis = new ByteArrayInputStream(value);
-            ObjectInputStream ois = new CustomObjectInputStream(bis);
-            result = (Serializable) ois.readObject();
-            ois.close();
-        } catch (Exception e) {
-            throw new CacheException("Error deserializing object.  Cause: " + e, e);
-        }
-        return result;
-    }
-
     public static class CustomObjectInputStream extends ObjectInputStream {
 
         public CustomObjectInputStream(InputStream in) throws IOException {
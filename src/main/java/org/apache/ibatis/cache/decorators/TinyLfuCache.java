@@ -0,0 +1,350 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * W-TinyLFU (window tiny least frequently used) cache decorator
+ * <p>
+ * key分布在三个LRU队列中：window（1%）、probation和protected（主区域的80%）
+ * 新key先进入window，从window淘汰的key只有在估计频率（FrequencySketch）高于probation中最久未访问的key时才会进入主区域，
+ * 因此一次性扫描大量key不会把高频的key挤出缓存
+ * <p>
+ * getObject不加锁，访问记录先写入有损的环形缓冲区，缓冲区满时通过tryLock批量更新队列和频率；
+ * putObject、removeObject、clear持有evictionLock
+ */
+public class TinyLfuCache implements ThreadSafeCache {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    // 读缓冲区大小，必须是2的幂
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    private final Cache delegate;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // 访问过的key，缓冲区满或者被争用时直接丢弃
+    private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<Object>(READ_BUFFER_SIZE);
+    private final AtomicLong readBufferWriteCount = new AtomicLong();
+    private volatile long readBufferReadCount;
+
+    // 以下字段只在持有evictionLock时访问
+    private final Map<Object, Node> nodes = new HashMap<Object, Node>();
+    private final AccessOrderDeque window = new AccessOrderDeque();
+    private final AccessOrderDeque probation = new AccessOrderDeque();
+    private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+    private FrequencySketch sketch;
+    private int maximumSize;
+    private int maximumWindowSize;
+    private int maximumProtectedSize;
+
+    public TinyLfuCache(Cache delegate) {
+        this.delegate = delegate;
+        setSize(1024);
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public int getSize() {
+        return delegate.getSize();
+    }
+
+    public void setSize(int size) {
+        evictionLock.lock();
+        try {
+            this.maximumSize = Math.max(1, size);
+            this.maximumWindowSize = Math.max(1, maximumSize / 100);
+            this.maximumProtectedSize = (int) ((maximumSize - maximumWindowSize) * 0.8);
+            this.sketch = new FrequencySketch(maximumSize);
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            delegate.putObject(key, value);
+            sketch.increment(key);
+            Node node = nodes.get(key);
+            if (node == null) {
+                node = new Node(key);
+                nodes.put(key, node);
+                window.addLast(node);
+                evict();
+            } else {
+                onAccess(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Object value = delegate.getObject(key);
+        recordRead(key);
+        return value;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        evictionLock.lock();
+        try {
+            Node node = nodes.remove(key);
+            if (node != null) {
+                dequeOf(node).remove(node);
+            }
+            return delegate.removeObject(key);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            // 保留sketch，flush之后仍然按照历史频率决定是否接纳
+            drainReadBuffer();
+            delegate.clear();
+            nodes.clear();
+            window.clear();
+            probation.clear();
+            protectedDeque.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+        return null;
+    }
+
+    /**
+     * 写入读缓冲区，缓冲区写满时尝试获取锁批量处理；缓冲区已满或者被其他线程争用时直接丢弃本次访问记录
+     */
+    private void recordRead(Object key) {
+        long writeCount = readBufferWriteCount.get();
+        long pending = writeCount - readBufferReadCount;
+        if (pending >= READ_BUFFER_SIZE) {
+            tryDrainReadBuffer();
+        } else if (readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+            readBuffer.lazySet((int) (writeCount & READ_BUFFER_MASK), key == null ? NullKey.INSTANCE : key);
+            if (pending + 1 == READ_BUFFER_SIZE) {
+                tryDrainReadBuffer();
+            }
+        }
+    }
+
+    private void tryDrainReadBuffer() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        long readCount = readBufferReadCount;
+        long writeCount = readBufferWriteCount.get();
+        for (; readCount < writeCount; readCount++) {
+            int index = (int) (readCount & READ_BUFFER_MASK);
+            Object key = readBuffer.get(index);
+            if (key == null) {
+                // 写入线程还没有完成lazySet
+                break;
+            }
+            readBuffer.lazySet(index, null);
+            if (key == NullKey.INSTANCE) {
+                key = null;
+            }
+            sketch.increment(key);
+            Node node = nodes.get(key);
+            if (node != null) {
+                onAccess(node);
+            }
+        }
+        readBufferReadCount = readCount;
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue == WINDOW) {
+            window.moveToBack(node);
+        } else if (node.queue == PROBATION) {
+            // probation中再次被访问的key晋升到protected
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedDeque.addLast(node);
+            while (protectedDeque.size > maximumProtectedSize) {
+                Node demoted = protectedDeque.pollFirst();
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            protectedDeque.moveToBack(node);
+        }
+    }
+
+    /**
+     * window超出容量时，window中最久未访问的key作为候选进入主区域；
+     * 主区域超出容量时，候选key和probation中最久未访问的key比较频率，淘汰频率低的
+     */
+    private void evict() {
+        while (window.size > maximumWindowSize) {
+            Node candidate = window.pollFirst();
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+            if (nodes.size() > maximumSize) {
+                Node victim = probation.peekFirst();
+                if (victim == candidate) {
+                    victim = protectedDeque.peekFirst();
+                }
+                if (victim == null || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    evict(victim == null ? candidate : victim);
+                } else {
+                    evict(candidate);
+                }
+            }
+        }
+        while (nodes.size() > maximumSize) {
+            Node victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            evict(victim);
+        }
+    }
+
+    private void evict(Node node) {
+        dequeOf(node).remove(node);
+        nodes.remove(node.key);
+        delegate.removeObject(node.key);
+    }
+
+    private AccessOrderDeque dequeOf(Node node) {
+        if (node.queue == WINDOW) {
+            return window;
+        } else if (node.queue == PROBATION) {
+            return probation;
+        } else {
+            return protectedDeque;
+        }
+    }
+
+    private enum NullKey {
+        INSTANCE
+    }
+
+    private static final class Node {
+        final Object key;
+        int queue = WINDOW;
+        Node prev;
+        Node next;
+
+        Node(Object key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 双向链表，头部是最久未访问的节点
+     */
+    private static final class AccessOrderDeque {
+        private Node first;
+        private Node last;
+        private int size;
+
+        Node peekFirst() {
+            return first;
+        }
+
+        Node pollFirst() {
+            Node node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void addLast(Node node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToBack(Node node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+            size = 0;
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * 线程安全的PerpetualCache（ConcurrentHashMap）
+ * 读操作不加锁，写操作只锁key所在的分段，多线程读同一个namespace时不会互相阻塞
+ * ConcurrentHashMap不支持null，null key用NULL_KEY代替，put null value等同于remove
+ */
+public class ConcurrentPerpetualCache implements ThreadSafeCache {
+
+    private static final Object NULL_KEY = new Object();
+
+    private final String id;
+
+    private final ConcurrentMap<Object, Object> cache = new ConcurrentHashMap<Object, Object>();
+
+    public ConcurrentPerpetualCache(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        if (value == null) {
+            cache.remove(maskNull(key));
+        } else {
+            cache.put(maskNull(key), value);
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        return cache.get(maskNull(key));
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        return cache.remove(maskNull(key));
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (getId() == null) {
+            throw new CacheException("Cache instances require an ID.");
+        }
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Cache)) {
+            return false;
+        }
+
+        Cache otherCache = (Cache) o;
+        return getId().equals(otherCache.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        if (getId() == null) {
+            throw new CacheException("Cache instances require an ID.");
+        }
+        return getId().hashCode();
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+}
@@ -0,0 +1,334 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.cache.serializer.Serializer;
+import org.apache.ibatis.cache.serializer.SerializerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 把序列化后的缓存值保存在堆外内存（direct ByteBuffer）中的缓存，适合数据量大的只读namespace，不会增加老年代的压力
+ * <p>
+ * 堆外内存被分成maxBytes / segmentSize个segment，缓存值依次追加写入当前segment，
+ * 当前segment写满后切换到下一个segment，如果下一个segment已经被使用过，先淘汰其中的所有条目再复用（按写入顺序FIFO淘汰）
+ * 被覆盖或删除的条目占用的空间在segment被复用时才会释放
+ * <p>
+ * 读操作持有读锁，只在锁内把数据复制到堆上，反序列化在锁外进行；写操作持有写锁
+ * <p>
+ * serializer可以是java（默认）、reflector或者Serializer实现类的全限定名
+ */
+public class OffHeapCache implements ThreadSafeCache, InitializingObject {
+
+    private final String id;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long maxBytes = 64L * 1024 * 1024;
+    private int segmentSize = 4 * 1024 * 1024;
+    private Serializer serializer = new JavaSerializer();
+
+    // 以下字段在持有锁时访问
+    private final Map<Object, Location> index = new HashMap<Object, Location>();
+    private ByteBuffer[] segments;
+    // 每个segment中写入过的key，用于淘汰segment时删除对应的条目
+    private List<Object>[] segmentKeys;
+    private int writeSegment;
+    private int writeOffset;
+    private long bytesUsed;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private long evictionCount;
+
+    public OffHeapCache(String id) {
+        this.id = id;
+        initialize();
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public void setSerializer(String serializer) {
+        this.serializer = SerializerFactory.create(serializer);
+    }
+
+    /**
+     * Allocates the segments again. Must be called after changing maxBytes or segmentSize, all entries are discarded.
+     */
+    @Override
+    public void initialize() {
+        if (segmentSize <= 0 || maxBytes < segmentSize) {
+            throw new CacheException("Invalid off-heap cache size for '" + id + "': maxBytes " + maxBytes
+                    + " must not be less than segmentSize " + segmentSize);
+        }
+        int segmentCount = (int) Math.min(Integer.MAX_VALUE, maxBytes / segmentSize);
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            // segment在第一次写入时才分配
+            segments = new ByteBuffer[segmentCount];
+            @SuppressWarnings("unchecked")
+            List<Object>[] keys = (List<Object>[]) new List<?>[segmentCount];
+            segmentKeys = keys;
+            writeSegment = 0;
+            writeOffset = 0;
+            bytesUsed = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        if (value == null) {
+            removeObject(key);
+            return;
+        }
+        byte[] bytes = serializer.serialize(value);
+        lock.writeLock().lock();
+        try {
+            discard(index.remove(key));
+            if (bytes.length > segmentSize) {
+                // 比segment还大的值不缓存
+                return;
+            }
+            if (writeOffset + bytes.length > segmentSize) {
+                writeSegment = (writeSegment + 1) % segments.length;
+                writeOffset = 0;
+                evictSegment(writeSegment);
+            }
+            ByteBuffer segment = segments[writeSegment];
+            if (segment == null) {
+                segment = ByteBuffer.allocateDirect(segmentSize);
+                segments[writeSegment] = segment;
+                segmentKeys[writeSegment] = new ArrayList<Object>();
+            }
+            ByteBuffer target = segment.duplicate();
+            target.position(writeOffset);
+            target.put(bytes);
+            index.put(key, new Location(writeSegment, writeOffset, bytes.length));
+            segmentKeys[writeSegment].add(key);
+            writeOffset += bytes.length;
+            bytesUsed += bytes.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        byte[] bytes = read(key, false);
+        if (bytes == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return serializer.deserialize(bytes);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        byte[] bytes = read(key, true);
+        return bytes == null ? null : serializer.deserialize(bytes);
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (List<Object> keys : segmentKeys) {
+                if (keys != null) {
+                    keys.clear();
+                }
+            }
+            writeSegment = 0;
+            writeOffset = 0;
+            bytesUsed = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+        return null;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        lock.readLock().lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * The number of bytes held by the entries currently in the cache
+     */
+    public long getBytesUsed() {
+        lock.readLock().lock();
+        try {
+            return bytesUsed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * The number of off-heap bytes allocated so far
+     */
+    public long getBytesAllocated() {
+        lock.readLock().lock();
+        try {
+            long allocated = 0;
+            for (ByteBuffer segment : segments) {
+                if (segment != null) {
+                    allocated += segment.capacity();
+                }
+            }
+            return allocated;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (getId() == null) {
+            throw new CacheException("Cache instances require an ID.");
+        }
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OffHeapCache)) {
+            return false;
+        }
+        return getId().equals(((OffHeapCache) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        if (getId() == null) {
+            throw new CacheException("Cache instances require an ID.");
+        }
+        return getId().hashCode();
+    }
+
+    /*
+     * Copies the bytes of an entry to the heap, removing the entry when asked to
+     */
+    private byte[] read(Object key, boolean remove) {
+        Lock held = remove ? lock.writeLock() : lock.readLock();
+        held.lock();
+        try {
+            Location location = remove ? index.remove(key) : index.get(key);
+            if (location == null) {
+                return null;
+            }
+            byte[] bytes = new byte[location.length];
+            ByteBuffer source = segments[location.segment].duplicate();
+            source.position(location.offset);
+            source.get(bytes);
+            if (remove) {
+                discard(location);
+            }
+            return bytes;
+        } finally {
+            held.unlock();
+        }
+    }
+
+    private void discard(Location location) {
+        if (location != null) {
+            bytesUsed -= location.length;
+        }
+    }
+
+    private void evictSegment(int segment) {
+        List<Object> keys = segmentKeys[segment];
+        if (keys == null) {
+            return;
+        }
+        for (Object key : keys) {
+            Location location = index.get(key);
+            // key可能已经被覆盖写入到其他segment
+            if (location != null && location.segment == segment) {
+                index.remove(key);
+                discard(location);
+                evictionCount++;
+            }
+        }
+        keys.clear();
+    }
+
+    private static class Location {
+
+        private final int segment;
+        private final int offset;
+        private final int length;
+
+        Location(int segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+}
@@ -0,0 +1,553 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 根据Reflector获取到的get、set方法序列化JavaBean，比Java序列化更快、结果更小
+ * <p>
+ * 只写入属性值，不写入属性名，属性按名称排序；每个类名在一次序列化中只写入一次，之后用序号代替；
+ * 整数使用变长编码，枚举只写入序号，因此序列化结果只能在同一个应用的同一个版本中反序列化
+ * 同一个对象被引用多次时只写入一次，因此循环引用（比如嵌套结果映射中的双向关联）可以正确还原
+ * <p>
+ * 只复制同时有get、set方法（或者字段）的属性，并且类必须有无参构造方法；
+ * 不满足条件的对象、延迟加载的代理对象和其它数组使用Java序列化写入
+ */
+public class ReflectorSerializer implements Serializer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte REFERENCE = 1;
+    private static final byte STRING = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte SHORT = 5;
+    private static final byte BYTE = 6;
+    private static final byte BOOLEAN = 7;
+    private static final byte CHARACTER = 8;
+    private static final byte FLOAT = 9;
+    private static final byte DOUBLE = 10;
+    private static final byte BIG_DECIMAL = 11;
+    private static final byte BIG_INTEGER = 12;
+    private static final byte DATE = 13;
+    private static final byte SQL_DATE = 14;
+    private static final byte TIME = 15;
+    private static final byte TIMESTAMP = 16;
+    private static final byte BYTES = 17;
+    private static final byte ENUM = 18;
+    private static final byte COLLECTION = 19;
+    private static final byte MAP = 20;
+    private static final byte BEAN = 21;
+    private static final byte SERIALIZED = 22;
+
+    // 可以通过无参构造方法创建并逐个添加元素的集合类型
+    private static final Set<Class<?>> COLLECTION_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class));
+    private static final Set<Class<?>> MAP_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            HashMap.class, LinkedHashMap.class, TreeMap.class));
+
+    // 不能按JavaBean处理的类
+    private static final BeanType UNSUPPORTED = new BeanType(null, new Invoker[0], new Invoker[0]);
+
+    private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    private final ConcurrentMap<Class<?>, BeanType> beanTypes = new ConcurrentHashMap<Class<?>, BeanType>();
+    private final JavaSerializer javaSerializer = new JavaSerializer();
+
+    @Override
+    public byte[] serialize(Object value) {
+        try {
+            Output out = new Output();
+            writeObject(out, value);
+            return out.toByteArray();
+        } catch (CacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheException("Error serializing object.  Cause: " + e, e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        try {
+            return readObject(new Input(bytes));
+        } catch (CacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheException("Error deserializing object.  Cause: " + e, e);
+        }
+    }
+
+    private void writeObject(Output out, Object value) throws Exception {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeInt((Short) value);
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Boolean.class) {
+            out.writeByte(BOOLEAN);
+            out.writeByte((Boolean) value ? 1 : 0);
+        } else if (type == Character.class) {
+            out.writeByte(CHARACTER);
+            out.writeInt((Character) value);
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeInt(Float.floatToIntBits((Float) value));
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeFixedLong(Double.doubleToLongBits((Double) value));
+        } else if (type == BigDecimal.class) {
+            out.writeByte(BIG_DECIMAL);
+            BigDecimal decimal = (BigDecimal) value;
+            out.writeInt(decimal.scale());
+            out.writeBytes(decimal.unscaledValue().toByteArray());
+        } else if (type == BigInteger.class) {
+            out.writeByte(BIG_INTEGER);
+            out.writeBytes(((BigInteger) value).toByteArray());
+        } else if (type == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (type == java.sql.Date.class) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (type == Time.class) {
+            out.writeByte(TIME);
+            out.writeLong(((Date) value).getTime());
+        } else if (type == Timestamp.class) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (type == byte[].class) {
+            out.writeByte(BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            out.writeClass(((Enum<?>) value).getDeclaringClass());
+            out.writeInt(((Enum<?>) value).ordinal());
+        } else if (out.writeReference(value)) {
+            // 已经写入过的对象
+        } else if (COLLECTION_TYPES.contains(type) && !hasComparator(value)) {
+            out.writeByte(COLLECTION);
+            out.writeClass(type);
+            Collection<?> collection = (Collection<?>) value;
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                writeObject(out, element);
+            }
+        } else if (MAP_TYPES.contains(type) && !hasComparator(value)) {
+            out.writeByte(MAP);
+            out.writeClass(type);
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeObject(out, entry.getKey());
+                writeObject(out, entry.getValue());
+            }
+        } else {
+            BeanType beanType = getBeanType(type);
+            if (beanType == UNSUPPORTED) {
+                out.writeByte(SERIALIZED);
+                out.writeBytes(javaSerializer.serialize(value));
+            } else {
+                out.writeByte(BEAN);
+                out.writeClass(type);
+                for (Invoker getter : beanType.getters) {
+                    writeObject(out, getter.invoke(value, null));
+                }
+            }
+        }
+    }
+
+    private Object readObject(Input in) throws Exception {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case REFERENCE:
+                return in.readReference();
+            case STRING:
+                return in.readString();
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case SHORT:
+                return (short) in.readInt();
+            case BYTE:
+                return in.readByte();
+            case BOOLEAN:
+                return in.readByte() != 0;
+            case CHARACTER:
+                return (char) in.readInt();
+            case FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case BIG_DECIMAL:
+                int scale = in.readInt();
+                return new BigDecimal(new BigInteger(in.readBytes()), scale);
+            case BIG_INTEGER:
+                return new BigInteger(in.readBytes());
+            case DATE:
+                return new Date(in.readLong());
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case TIME:
+                return new Time(in.readLong());
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case BYTES:
+                return in.readBytes();
+            case ENUM:
+                return in.readClass().getEnumConstants()[in.readInt()];
+            case COLLECTION:
+                return readCollection(in);
+            case MAP:
+                return readMap(in);
+            case BEAN:
+                return readBean(in);
+            case SERIALIZED:
+                Object value = javaSerializer.deserialize(in.readBytes());
+                in.addReference(value);
+                return value;
+            default:
+                throw new CacheException("Error deserializing object.  Cause: unknown type tag " + tag);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection(Input in) throws Exception {
+        Collection<Object> collection = (Collection<Object>) in.readClass().newInstance();
+        in.addReference(collection);
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            collection.add(readObject(in));
+        }
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap(Input in) throws Exception {
+        Map<Object, Object> map = (Map<Object, Object>) in.readClass().newInstance();
+        in.addReference(map);
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            Object key = readObject(in);
+            map.put(key, readObject(in));
+        }
+        return map;
+    }
+
+    private Object readBean(Input in) throws Exception {
+        BeanType beanType = getBeanType(in.readClass());
+        Object bean = beanType.constructor.newInstance();
+        in.addReference(bean);
+        Object[] args = new Object[1];
+        for (Invoker setter : beanType.setters) {
+            args[0] = readObject(in);
+            setter.invoke(bean, args);
+        }
+        return bean;
+    }
+
+    private boolean hasComparator(Object value) {
+        if (value instanceof SortedSet) {
+            return ((SortedSet<?>) value).comparator() != null;
+        }
+        if (value instanceof SortedMap) {
+            return ((SortedMap<?, ?>) value).comparator() != null;
+        }
+        return false;
+    }
+
+    private BeanType getBeanType(Class<?> type) {
+        BeanType beanType = beanTypes.get(type);
+        if (beanType == null) {
+            beanType = createBeanType(type);
+            beanTypes.put(type, beanType);
+        }
+        return beanType;
+    }
+
+    private BeanType createBeanType(Class<?> type) {
+        if (type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                || Proxy.isProxyClass(type) || WriteReplaceInterface.class.isAssignableFrom(type)
+                || type.getName().startsWith("java.")
+                // 白名单以外的集合和Map（比如子类）的元素不是属性，按JavaBean复制会丢失元素
+                || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return UNSUPPORTED;
+        }
+        Reflector reflector = reflectorFactory.findForClass(type);
+        if (!reflector.hasDefaultConstructor()) {
+            return UNSUPPORTED;
+        }
+        List<String> names = new ArrayList<String>();
+        for (String name : reflector.getGetablePropertyNames()) {
+            if (reflector.hasSetter(name)) {
+                names.add(name);
+            }
+        }
+        // 写入和读取时属性顺序必须一致
+        Collections.sort(names);
+        Invoker[] getters = new Invoker[names.size()];
+        Invoker[] setters = new Invoker[names.size()];
+        for (int i = 0; i < getters.length; i++) {
+            getters[i] = reflector.getGetInvoker(names.get(i));
+            setters[i] = reflector.getSetInvoker(names.get(i));
+        }
+        return new BeanType(reflector.getDefaultConstructor(), getters, setters);
+    }
+
+    private static class BeanType {
+
+        private final Constructor<?> constructor;
+        private final Invoker[] getters;
+        private final Invoker[] setters;
+
+        BeanType(Constructor<?> constructor, Invoker[] getters, Invoker[] setters) {
+            this.constructor = constructor;
+            this.getters = getters;
+            this.setters = setters;
+        }
+
+    }
+
+    private static class Output {
+
+        private byte[] buffer = new byte[256];
+        private int position;
+        private Map<Class<?>, Integer> classes;
+        private Map<Object, Integer> references;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        /*
+         * Zigzag varint, small positive and negative values take one byte
+         */
+        void writeInt(int value) {
+            writeLong(value);
+        }
+
+        void writeLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            ensureCapacity(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        void writeFixedLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeBytes(value.getBytes(UTF_8));
+        }
+
+        /*
+         * The first occurrence of a class writes its name, later ones only its index
+         */
+        void writeClass(Class<?> type) {
+            if (classes == null) {
+                classes = new HashMap<Class<?>, Integer>();
+            }
+            Integer index = classes.get(type);
+            if (index == null) {
+                classes.put(type, classes.size());
+                writeInt(-1);
+                writeString(type.getName());
+            } else {
+                writeInt(index);
+            }
+        }
+
+        /*
+         * Writes a reference if the object has been written before, otherwise remembers it
+         */
+        boolean writeReference(Object value) {
+            if (references == null) {
+                references = new IdentityHashMap<Object, Integer>();
+            }
+            Integer index = references.get(value);
+            if (index == null) {
+                references.put(value, references.size());
+                return false;
+            }
+            writeByte(REFERENCE);
+            writeInt(index);
+            return true;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+            }
+        }
+
+    }
+
+    private static class Input {
+
+        private final byte[] buffer;
+        private int position;
+        private List<Class<?>> classes;
+        private List<Object> references;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            return buffer[position++];
+        }
+
+        int readInt() {
+            return (int) readLong();
+        }
+
+        long readLong() {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xff);
+            }
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readInt();
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = readInt();
+            String value = new String(buffer, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+
+        Class<?> readClass() throws ClassNotFoundException {
+            if (classes == null) {
+                classes = new ArrayList<Class<?>>();
+            }
+            int index = readInt();
+            if (index < 0) {
+                Class<?> type = Resources.classForName(readString());
+                classes.add(type);
+                return type;
+            }
+            return classes.get(index);
+        }
+
+        void addReference(Object value) {
+            if (references == null) {
+                references = new ArrayList<Object>();
+            }
+            references.add(value);
+        }
+
+        Object readReference() {
+            return references.get(readInt());
+        }
+
+    }
+
+}
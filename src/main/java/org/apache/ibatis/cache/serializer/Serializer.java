@@ -0,0 +1,36 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+/**
+ * 缓存值与byte[]之间的转换
+ * 实现类必须是线程安全的，并且有无参构造方法
+ */
+public interface Serializer {
+
+    /**
+     * @param value the value to serialize, may be null
+     * @throws org.apache.ibatis.cache.CacheException if the value can not be serialized
+     */
+    byte[] serialize(Object value);
+
+    /**
+     * @param bytes the bytes returned by {@link #serialize(Object)}
+     * @throws org.apache.ibatis.cache.CacheException if the value can not be deserialized
+     */
+    Object deserialize(byte[] bytes);
+
+}
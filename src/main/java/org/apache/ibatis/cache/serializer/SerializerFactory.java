@@ -0,0 +1,45 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * 根据cache的serializer属性创建Serializer
+ * java、reflector或者Serializer实现类的全限定名
+ */
+public final class SerializerFactory {
+
+    private SerializerFactory() {
+        // Prevent Instantiation
+    }
+
+    public static Serializer create(String name) {
+        if ("java".equalsIgnoreCase(name)) {
+            return new JavaSerializer();
+        }
+        if ("reflector".equalsIgnoreCase(name)) {
+            return new ReflectorSerializer();
+        }
+        try {
+            return (Serializer) Resources.classForName(name).newInstance();
+        } catch (Exception e) {
+            throw new CacheException("Error creating serializer '" + name + "'.  Cause: " + e, e);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁的连接容器，借出和归还都通过CAS修改PoolEntry的状态完成
+ * <p>
+ * 借出顺序：
+ * 1. 当前线程上次归还的entry（thread-local affinity）
+ * 2. 遍历sharedList，CAS抢占空闲的entry
+ * 3. 在公平的handoffQueue上等待其他线程归还
+ *
+ * 归还时如果有线程在等待，直接通过handoffQueue交给等待的线程
+ */
+class ConcurrentBag {
+
+    // 所有的entry，读多写少（只有创建、销毁连接时才会修改）
+    private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<PoolEntry>();
+
+    // 当前线程最后一次归还的entry，弱引用避免线程池中的线程持有已销毁的连接
+    private final ThreadLocal<WeakReference<PoolEntry>> threadLocalEntry = new ThreadLocal<WeakReference<PoolEntry>>();
+
+    // 公平模式，等待时间最长的线程优先获取归还的entry
+    private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<PoolEntry>(true);
+
+    // 正在借出（扫描sharedList或者在handoffQueue上等待）的线程数
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /*
+     * Borrows an idle entry without waiting
+     *
+     * @return the entry, marked as in use, or null if there is no idle entry
+     */
+    PoolEntry borrow() {
+        PoolEntry entry = borrowThreadLocal();
+        if (entry != null) {
+            return entry;
+        }
+        return borrowShared();
+    }
+
+    /*
+     * Borrows an idle entry, waiting for another thread to return one if necessary
+     *
+     * @param timeout - how long to wait before giving up
+     * @param timeUnit - the unit of the timeout
+     * @return the entry, marked as in use, or null if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    PoolEntry borrow(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        PoolEntry entry = borrowThreadLocal();
+        if (entry != null) {
+            return entry;
+        }
+        // 先登记waiters再扫描，保证归还的线程要么被扫描到，要么会通过handoffQueue交过来
+        waiters.incrementAndGet();
+        try {
+            entry = borrowShared();
+            if (entry != null) {
+                return entry;
+            }
+            long timeoutNanos = timeUnit.toNanos(timeout);
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (timeoutNanos > 0) {
+                entry = handoffQueue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+                // 交过来的entry可能已经被其他扫描的线程抢走
+                if (entry == null || entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                    return entry;
+                }
+                timeoutNanos = deadline - System.nanoTime();
+            }
+            return null;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /*
+     * Returns a borrowed entry, handing it off directly to a waiting thread if there is one
+     *
+     * @param entry - the entry to return
+     */
+    void requite(PoolEntry entry) {
+        // 借出期间被forceCloseAll移除的entry不能再回到bag中
+        if (!entry.compareAndSetState(PoolEntry.STATE_IN_USE, PoolEntry.STATE_NOT_IN_USE)) {
+            return;
+        }
+        for (int i = 0; waiters.get() > 0; i++) {
+            // 已经被其他线程抢走或者成功交给了等待的线程
+            if (entry.getState() != PoolEntry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+                return;
+            } else if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            } else {
+                Thread.yield();
+            }
+        }
+        threadLocalEntry.set(new WeakReference<PoolEntry>(entry));
+    }
+
+    /*
+     * Reserves an idle entry so that it cannot be borrowed, e.g. while it is validated in the background
+     *
+     * @param entry - the entry to reserve
+     * @return true if the entry was idle and is now reserved
+     */
+    boolean reserve(PoolEntry entry) {
+        return entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_RESERVED);
+    }
+
+    /*
+     * Makes a reserved entry available again, handing it off to a waiting thread if there is one
+     *
+     * @param entry - the entry to release
+     */
+    void unreserve(PoolEntry entry) {
+        if (entry.compareAndSetState(PoolEntry.STATE_RESERVED, PoolEntry.STATE_IN_USE)) {
+            requite(entry);
+        }
+    }
+
+    /*
+     * Adds a newly created entry, which stays in use by the creating thread
+     *
+     * @param entry - the entry to add
+     */
+    void add(PoolEntry entry) {
+        sharedList.add(entry);
+    }
+
+    /*
+     * Removes an entry from the bag
+     *
+     * @param entry - the entry to remove
+     * @return true if this call removed the entry, false if it had already been removed
+     */
+    boolean remove(PoolEntry entry) {
+        boolean removed = entry.markRemoved() != PoolEntry.STATE_REMOVED;
+        sharedList.remove(entry);
+        return removed;
+    }
+
+    /*
+     * Snapshot of all entries in the bag
+     */
+    List<PoolEntry> values() {
+        return new ArrayList<PoolEntry>(sharedList);
+    }
+
+    /*
+     * Snapshot of all entries in the bag with the given state
+     */
+    List<PoolEntry> values(int state) {
+        List<PoolEntry> list = new ArrayList<PoolEntry>();
+        for (PoolEntry entry : sharedList) {
+            if (entry.getState() == state) {
+                list.add(entry);
+            }
+        }
+        return list;
+    }
+
+    int getCount(int state) {
+        int count = 0;
+        for (PoolEntry entry : sharedList) {
+            if (entry.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int size() {
+        return sharedList.size();
+    }
+
+    int getWaitingThreadCount() {
+        return waiters.get();
+    }
+
+    private PoolEntry borrowThreadLocal() {
+        WeakReference<PoolEntry> reference = threadLocalEntry.get();
+        if (reference != null) {
+            threadLocalEntry.remove();
+            PoolEntry entry = reference.get();
+            if (entry != null && entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private PoolEntry borrowShared() {
+        for (PoolEntry entry : sharedList) {
+            if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConcurrentPooledDataSource的统计信息，统计项与PoolState一致
+ * 统计数据使用原子变量维护，连接数直接从ConcurrentBag中统计，读写都不需要锁state对象
+ */
+public class ConcurrentPoolState extends PoolState {
+
+    private final ConcurrentBag bag;
+
+    protected final AtomicLong requestCounter = new AtomicLong();
+    protected final AtomicLong accumulatedRequestTimeCounter = new AtomicLong();
+    protected final AtomicLong accumulatedCheckoutTimeCounter = new AtomicLong();
+    protected final AtomicLong claimedOverdueConnectionCounter = new AtomicLong();
+    protected final AtomicLong accumulatedCheckoutTimeOfOverdueConnectionsCounter = new AtomicLong();
+    protected final AtomicLong hadToWaitCounter = new AtomicLong();
+    protected final AtomicLong accumulatedWaitTimeCounter = new AtomicLong();
+    protected final AtomicLong badConnectionCounter = new AtomicLong();
+
+    ConcurrentPoolState(ConcurrentPooledDataSource dataSource, ConcurrentBag bag) {
+        super(dataSource);
+        this.bag = bag;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCounter.get();
+    }
+
+    @Override
+    public long getAverageRequestTime() {
+        long requests = requestCounter.get();
+        return requests == 0 ? 0 : accumulatedRequestTimeCounter.get() / requests;
+    }
+
+    @Override
+    public long getAverageWaitTime() {
+        long waits = hadToWaitCounter.get();
+        return waits == 0 ? 0 : accumulatedWaitTimeCounter.get() / waits;
+    }
+
+    @Override
+    public long getHadToWaitCount() {
+        return hadToWaitCounter.get();
+    }
+
+    @Override
+    public long getBadConnectionCount() {
+        return badConnectionCounter.get();
+    }
+
+    @Override
+    public long getClaimedOverdueConnectionCount() {
+        return claimedOverdueConnectionCounter.get();
+    }
+
+    @Override
+    public long getAverageOverdueCheckoutTime() {
+        long claimed = claimedOverdueConnectionCounter.get();
+        return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnectionsCounter.get() / claimed;
+    }
+
+    @Override
+    public long getAverageCheckoutTime() {
+        long requests = requestCounter.get();
+        return requests == 0 ? 0 : accumulatedCheckoutTimeCounter.get() / requests;
+    }
+
+    @Override
+    public int getIdleConnectionCount() {
+        return bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+    }
+
+    @Override
+    public int getActiveConnectionCount() {
+        // 被保留的连接（超时回收中）也计入active
+        return bag.size() - bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+    }
+
+    /*
+     * The number of threads currently waiting for a connection
+     */
+    public int getWaitingThreadCount() {
+        return bag.getWaitingThreadCount();
+    }
+
+}
@@ -0,0 +1,375 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe connection pool that does not serialize borrowers on a global monitor.
+ * <p>
+ * 配置项和统计信息与PooledDataSource一致，区别在于连接存放在ConcurrentBag中：
+ * 借出、归还通过CAS完成，优先复用当前线程上次使用的连接，等待的线程通过公平的handoff队列获取归还的连接
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+    private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+    private final ConcurrentBag bag = new ConcurrentBag();
+
+    private final ConcurrentPoolState state = new ConcurrentPoolState(this, bag);
+
+    // 连接总数（包括创建中的），用于控制不超过poolMaximumActiveConnections
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    public ConcurrentPooledDataSource() {
+        super();
+    }
+
+    public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+        super(dataSource);
+    }
+
+    public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+        super(driver, url, username, password);
+    }
+
+    public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+        super(driver, url, driverProperties);
+    }
+
+    public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+        super(driverClassLoader, driver, url, username, password);
+    }
+
+    public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+        super(driverClassLoader, driver, url, driverProperties);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return popConnection(username, password).getProxyConnection();
+    }
+
+    @Override
+    public ConcurrentPoolState getPoolState() {
+        return state;
+    }
+
+    /**
+     * 关闭所有的connection，正在使用中的connection会被置为无效，归还时按bad connection处理
+     * <p>
+     * Closes all active and idle connections in the pool
+     */
+    @Override
+    public void forceCloseAll() {
+        expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+        for (PoolEntry entry : bag.values()) {
+            if (bag.remove(entry)) {
+                totalConnections.decrementAndGet();
+                PooledConnection handle = entry.getHandle();
+                if (handle != null) {
+                    handle.invalidate();
+                }
+                closeRealConnection(entry);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+        }
+    }
+
+    /**
+     * 归还connection，connection close时调用
+     *
+     * @param conn
+     * @throws SQLException
+     */
+    @Override
+    protected void pushConnection(PooledConnection conn) throws SQLException {
+        PoolEntry entry = conn.getPoolEntry();
+        // 超时被回收或者被forceCloseAll的连接，handle已经不再属于entry
+        boolean owner = entry.getHandle() == conn;
+        if (owner && conn.isValid()) {
+            state.accumulatedCheckoutTimeCounter.addAndGet(conn.getCheckoutTime());
+            if (!conn.getRealConnection().getAutoCommit()) {
+                conn.getRealConnection().rollback();
+            }
+            entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+            entry.setHandle(null);
+            conn.invalidate();
+            // 有线程在等待时总是归还，交给等待的线程
+            if (conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(entry.getAge())
+                    && (bag.getWaitingThreadCount() > 0 || bag.getCount(PoolEntry.STATE_NOT_IN_USE) < poolMaximumIdleConnections)) {
+                bag.requite(entry);
+                if (log.isDebugEnabled()) {
+                    log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+                }
+            } else {
+                // 直接销毁connection
+                if (bag.remove(entry)) {
+                    totalConnections.decrementAndGet();
+                }
+                conn.getRealConnection().close();
+                if (log.isDebugEnabled()) {
+                    log.debug("Closed connection " + conn.getRealHashCode() + ".");
+                }
+            }
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+            }
+            if (owner) {
+                discardEntry(entry);
+            }
+            state.badConnectionCounter.incrementAndGet();
+        }
+    }
+
+    /**
+     * 后台维护线程定期调用，逻辑同PooledDataSource.housekeep
+     * 处理中的idle连接状态为RESERVED，不会被借出
+     */
+    @Override
+    protected void housekeep() {
+        int idleCount = bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+        for (PoolEntry entry : bag.values(PoolEntry.STATE_NOT_IN_USE)) {
+            if (!bag.reserve(entry)) {
+                continue;
+            }
+            long idleTime = entry.getTimeElapsedSinceLastUse();
+            if (isExpired(entry.getAge()) || (idleCount > poolMinimumIdleConnections && isIdleTimedOut(idleTime))) {
+                idleCount--;
+                discardEntry(entry);
+                if (log.isDebugEnabled()) {
+                    log.debug("Evicted idle connection " + entry.getRealConnection().hashCode() + ".");
+                }
+            } else if (poolPingEnabled && poolPingConnectionsNotUsedFor >= 0 && idleTime > poolPingConnectionsNotUsedFor
+                    && !executePingQuery(entry.getRealConnection())) {
+                idleCount--;
+                discardEntry(entry);
+                state.badConnectionCounter.incrementAndGet();
+            } else {
+                bag.unreserve(entry);
+            }
+        }
+
+        // 预创建连接
+        while (bag.getCount(PoolEntry.STATE_NOT_IN_USE) < poolMinimumIdleConnections) {
+            PoolEntry entry;
+            try {
+                entry = createEntry();
+            } catch (SQLException e) {
+                log.warn("Could not fill the pool up to " + poolMinimumIdleConnections + " idle connections: " + e.getMessage());
+                break;
+            }
+            if (entry == null) {
+                break;
+            }
+            bag.requite(entry);
+        }
+    }
+
+    private PooledConnection popConnection(String username, String password) throws SQLException {
+        boolean countedWait = false;
+        PooledConnection conn = null;
+        long t = System.currentTimeMillis();
+        int localBadConnectionCount = 0;
+
+        while (conn == null) {
+            // 1. 当前线程上次使用的连接或者任意空闲连接
+            PoolEntry entry = bag.borrow();
+            if (entry == null) {
+                // 2. 没有超过max active，创建一个新的
+                entry = createEntry();
+            }
+            if (entry == null) {
+                // 3. 回收借出时间超过poolMaximumCheckoutTime的连接
+                entry = claimOverdueEntry();
+            }
+            if (entry == null) {
+                // 4. 等待其他线程归还
+                if (!countedWait) {
+                    state.hadToWaitCounter.incrementAndGet();
+                    countedWait = true;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+                }
+                long wt = System.currentTimeMillis();
+                try {
+                    entry = bag.borrow(poolTimeToWait, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                state.accumulatedWaitTimeCounter.addAndGet(System.currentTimeMillis() - wt);
+                if (entry == null) {
+                    continue;
+                }
+            }
+
+            conn = new PooledConnection(entry.getRealConnection(), this);
+            conn.setPoolEntry(entry);
+            conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+            conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+            if (conn.isValid()) {
+                if (!conn.getRealConnection().getAutoCommit()) {
+                    conn.getRealConnection().rollback();
+                }
+                long now = System.currentTimeMillis();
+                conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+                conn.setCheckoutTimestamp(now);
+                conn.setLastUsedTimestamp(now);
+                entry.setCheckoutTimestamp(now);
+                entry.setHandle(conn);
+                // 借出时被forceCloseAll移除了，重新获取
+                if (entry.getState() == PoolEntry.STATE_REMOVED) {
+                    conn.invalidate();
+                    conn = null;
+                    continue;
+                }
+
+                // 统计信息
+                state.requestCounter.incrementAndGet();
+                state.accumulatedRequestTimeCounter.addAndGet(now - t);
+            } else {
+                if (log.isDebugEnabled()) {
+                    log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+                }
+                discardEntry(entry);
+                state.badConnectionCounter.incrementAndGet();
+                localBadConnectionCount++;
+                conn = null;
+                if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+                    }
+                    throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+                }
+            }
+        }
+
+        if (conn == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+            }
+            throw new SQLException("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+        }
+
+        return conn;
+    }
+
+    /**
+     * 连接总数没有超过poolMaximumActiveConnections时创建一个新的连接，新建的entry直接处于借出状态
+     */
+    private PoolEntry createEntry() throws SQLException {
+        for (;;) {
+            int total = totalConnections.get();
+            if (total >= poolMaximumActiveConnections) {
+                return null;
+            }
+            if (totalConnections.compareAndSet(total, total + 1)) {
+                break;
+            }
+        }
+        PoolEntry entry;
+        try {
+            entry = new PoolEntry(dataSource.getConnection());
+        } catch (SQLException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        } catch (RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+        bag.add(entry);
+        if (log.isDebugEnabled()) {
+            log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+        }
+        return entry;
+    }
+
+    /**
+     * 回收借出时间最长并且超过poolMaximumCheckoutTime的连接
+     */
+    private PoolEntry claimOverdueEntry() {
+        PoolEntry oldest = null;
+        for (PoolEntry entry : bag.values(PoolEntry.STATE_IN_USE)) {
+            if (entry.getHandle() != null && (oldest == null || entry.getCheckoutTimestamp() < oldest.getCheckoutTimestamp())) {
+                oldest = entry;
+            }
+        }
+        if (oldest == null) {
+            return null;
+        }
+        long longestCheckoutTime = oldest.getCheckoutTime();
+        if (longestCheckoutTime <= poolMaximumCheckoutTime
+                || !oldest.compareAndSetState(PoolEntry.STATE_IN_USE, PoolEntry.STATE_RESERVED)) {
+            return null;
+        }
+        // 统计信息
+        state.claimedOverdueConnectionCounter.incrementAndGet();
+        state.accumulatedCheckoutTimeOfOverdueConnectionsCounter.addAndGet(longestCheckoutTime);
+        state.accumulatedCheckoutTimeCounter.addAndGet(longestCheckoutTime);
+
+        // invalid超时的handle，原持有者归还时按bad connection处理
+        PooledConnection overdue = oldest.getHandle();
+        oldest.setHandle(null);
+        if (overdue != null) {
+            overdue.invalidate();
+        }
+        try {
+            if (!oldest.getRealConnection().getAutoCommit()) {
+                oldest.getRealConnection().rollback();
+            }
+        } catch (SQLException e) {
+            // 同PooledDataSource，交给借出时的isValid检测
+            log.debug("Bad connection. Could not roll back");
+        }
+        if (!oldest.compareAndSetState(PoolEntry.STATE_RESERVED, PoolEntry.STATE_IN_USE)) {
+            // 回收过程中被forceCloseAll移除
+            return null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Claimed overdue connection " + oldest.getRealConnection().hashCode() + ".");
+        }
+        return oldest;
+    }
+
+    private void discardEntry(PoolEntry entry) {
+        if (bag.remove(entry)) {
+            totalConnections.decrementAndGet();
+            closeRealConnection(entry);
+        }
+    }
+
+    private void closeRealConnection(PoolEntry entry) {
+        closeQuietly(entry.getRealConnection());
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.executor.StatementCache;
+
+/**
+ * ConcurrentBag中的元素，持有realConnection，生命周期与realConnection一致
+ * 每次借出时会创建一个新的PooledConnection（代理对象）作为handle，归还时handle失效
+ */
+class PoolEntry {
+
+    // 空闲
+    static final int STATE_NOT_IN_USE = 0;
+    // 借出
+    static final int STATE_IN_USE = 1;
+    // 已从bag中移除
+    static final int STATE_REMOVED = -1;
+    // 被保留（超时回收中、后台检测中等），不能被借出
+    static final int STATE_RESERVED = -2;
+
+    private final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+
+    private final Connection realConnection;
+
+    private final long createdTimestamp;
+
+    private volatile long lastUsedTimestamp;
+
+    private volatile long checkoutTimestamp;
+
+    // 当前借出的handle，空闲时为null
+    private volatile PooledConnection handle;
+
+    // realConnection上缓存的语句，跨handle复用
+    private StatementCache statementCache;
+
+    /*
+     * Creates an entry that is already marked as in use by the creating thread
+     *
+     * @param realConnection - the connection that is to be pooled
+     */
+    PoolEntry(Connection realConnection) {
+        this.realConnection = realConnection;
+        this.createdTimestamp = System.currentTimeMillis();
+        this.lastUsedTimestamp = createdTimestamp;
+    }
+
+    int getState() {
+        return state.get();
+    }
+
+    boolean compareAndSetState(int expectState, int newState) {
+        return state.compareAndSet(expectState, newState);
+    }
+
+    /*
+     * Marks the entry as removed whatever state it is in
+     *
+     * @return the previous state
+     */
+    int markRemoved() {
+        return state.getAndSet(STATE_REMOVED);
+    }
+
+    Connection getRealConnection() {
+        return realConnection;
+    }
+
+    long getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    long getLastUsedTimestamp() {
+        return lastUsedTimestamp;
+    }
+
+    void setLastUsedTimestamp(long lastUsedTimestamp) {
+        this.lastUsedTimestamp = lastUsedTimestamp;
+    }
+
+    long getCheckoutTimestamp() {
+        return checkoutTimestamp;
+    }
+
+    void setCheckoutTimestamp(long checkoutTimestamp) {
+        this.checkoutTimestamp = checkoutTimestamp;
+    }
+
+    long getCheckoutTime() {
+        return System.currentTimeMillis() - checkoutTimestamp;
+    }
+
+    long getTimeElapsedSinceLastUse() {
+        return System.currentTimeMillis() - lastUsedTimestamp;
+    }
+
+    long getAge() {
+        return System.currentTimeMillis() - createdTimestamp;
+    }
+
+    /*
+     * Getter for the statements cached on the real connection, only used by the borrowing thread
+     *
+     * @return The statement cache
+     */
+    StatementCache getStatementCache() {
+        if (statementCache == null) {
+            statementCache = new StatementCache(StatementCache.DEFAULT_CONNECTION_MAX_SIZE);
+        }
+        return statementCache;
+    }
+
+    PooledConnection getHandle() {
+        return handle;
+    }
+
+    void setHandle(PooledConnection handle) {
+        this.handle = handle;
+    }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池的后台维护线程，定期调用PooledDataSource.housekeep
+ * 只持有dataSource的弱引用，dataSource被回收后自动停止，不会阻止dataSource的finalize
+ */
+class PoolHousekeeper implements Runnable {
+
+    private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final WeakReference<PooledDataSource> dataSourceReference;
+
+    private final ScheduledExecutorService executor;
+
+    PoolHousekeeper(PooledDataSource dataSource, long period) {
+        this.dataSourceReference = new WeakReference<PooledDataSource>(dataSource);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "mybatis-pool-housekeeper-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.executor.scheduleWithFixedDelay(this, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        PooledDataSource dataSource = dataSourceReference.get();
+        if (dataSource == null) {
+            shutdown();
+            return;
+        }
+        try {
+            dataSource.housekeep();
+        } catch (Throwable t) {
+            // 异常不能抛出，否则后续的调度会被取消
+            log.warn("Pool housekeeping failed: " + t.getMessage());
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
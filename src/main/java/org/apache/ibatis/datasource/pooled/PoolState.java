@@ -115,6 +115,10 @@ public class PoolState {
         builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
         builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
         builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+        builder.append("\n poolHousekeepingPeriod         ").append(dataSource.poolHousekeepingPeriod);
+        builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+        builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+        builder.append("\n poolMaximumIdleTime            ").append(dataSource.poolMaximumIdleTime);
         builder.append("\n ---STATUS-----------------------------------------------------");
         builder.append("\n activeConnections              ").append(getActiveConnectionCount());
         builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
+import org.apache.ibatis.executor.StatementCache;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 import java.lang.reflect.InvocationHandler;
@@ -30,6 +31,9 @@ class PooledConnection implements InvocationHandler {
 
     // connection的close方法
     private static final String CLOSE = "close";
+    // 通过unwrap/isWrapperFor暴露realConnection上的StatementCache
+    private static final String UNWRAP = "unwrap";
+    private static final String IS_WRAPPER_FOR = "isWrapperFor";
     // newProxyInstance的interfaces
     private static final Class<?>[] IFACES = new Class<?>[]{Connection.class};
 
@@ -51,6 +55,10 @@ class PooledConnection implements InvocationHandler {
     private int connectionTypeCode;
     // 连接是否有效，当连接池被forceCloseAll时，所有的连接都会被置为无效
     private boolean valid;
+    // ConcurrentPooledDataSource中与之关联的bag元素，PooledDataSource中为null
+    private PoolEntry poolEntry;
+    // realConnection上缓存的语句，PooledDataSource复用realConnection时传给新的PooledConnection
+    private StatementCache statementCache;
 
     /*
      * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
@@ -151,6 +159,48 @@ class PooledConnection implements InvocationHandler {
         this.createdTimestamp = createdTimestamp;
     }
 
+    /*
+     * Getter for the bag entry this connection was borrowed from
+     *
+     * @return The entry, or null if the connection is not managed by a ConcurrentBag
+     */
+    PoolEntry getPoolEntry() {
+        return poolEntry;
+    }
+
+    /*
+     * Setter for the bag entry this connection was borrowed from
+     *
+     * @param poolEntry - the entry
+     */
+    void setPoolEntry(PoolEntry poolEntry) {
+        this.poolEntry = poolEntry;
+    }
+
+    /*
+     * Getter for the statements cached on the real connection, which outlive this handle
+     *
+     * @return The statement cache
+     */
+    StatementCache getStatementCache() {
+        if (poolEntry != null) {
+            return poolEntry.getStatementCache();
+        }
+        if (statementCache == null) {
+            statementCache = new StatementCache(StatementCache.DEFAULT_CONNECTION_MAX_SIZE);
+        }
+        return statementCache;
+    }
+
+    /*
+     * Passes the statements cached on the real connection to the new handle of the connection
+     *
+     * @param conn - the previous handle of the real connection
+     */
+    void copyStatementCache(PooledConnection conn) {
+        this.statementCache = conn.statementCache;
+    }
+
     /*
      * Getter for the time that the connection was last used
      *
@@ -263,6 +313,13 @@ class PooledConnection implements InvocationHandler {
                     // throw an SQLException instead of a Runtime
                     checkConnection();
                 }
+                if (args != null && args.length == 1 && StatementCache.class.equals(args[0])) {
+                    if (UNWRAP.equals(methodName)) {
+                        return getStatementCache();
+                    } else if (IS_WRAPPER_FOR.equals(methodName)) {
+                        return true;
+                    }
+                }
                 return method.invoke(realConnection, args);
             } catch (Throwable t) {
                 throw ExceptionUtil.unwrapThrowable(t);
@@ -27,6 +27,9 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -45,7 +48,7 @@ public class PooledDataSource implements DataSource {
     private final PoolState state = new PoolState(this);
 
     // 数据库连接信息的维护，getConnection方法实际依赖于 UnpooledDataSource
-    private final UnpooledDataSource dataSource;
+    protected final UnpooledDataSource dataSource;
 
     // OPTIONAL CONFIGURATION FIELDS
     // 最大连接数
@@ -67,8 +70,19 @@ public class PooledDataSource implements DataSource {
     // 只有空闲时长超过poolPingConnectionsNotUsedFor的才会ping
     protected int poolPingConnectionsNotUsedFor;
 
+    // 后台维护线程的执行间隔，大于0时开启，开启后借出和归还连接时不再执行ping，由后台线程检测idle连接
+    protected int poolHousekeepingPeriod;
+    // 后台线程维持的最少idle连接数
+    protected int poolMinimumIdleConnections;
+    // 连接的最大存活时间，超过的连接在归还或者后台检测时被关闭，0表示不限制
+    protected int poolMaximumLifetime;
+    // idle连接的最大空闲时间，超过的连接（保留poolMinimumIdleConnections个）被后台线程关闭，0表示不限制
+    protected int poolMaximumIdleTime;
+
+    private PoolHousekeeper housekeeper;
+
     // url + username + password hashCode
-    private int expectedConnectionTypeCode;
+    protected int expectedConnectionTypeCode;
 
     public PooledDataSource() {
         dataSource = new UnpooledDataSource();
@@ -249,6 +263,56 @@ public class PooledDataSource implements DataSource {
         forceCloseAll();
     }
 
+    /*
+     * How often the background housekeeper validates, evicts and pre-fills idle connections.
+     * Once enabled, connections are no longer pinged when they are checked out or returned.
+     *
+     * @param milliseconds the delay between two runs, 0 or less disables the housekeeper
+     */
+    public void setPoolHousekeepingPeriod(int milliseconds) {
+        this.poolHousekeepingPeriod = milliseconds;
+        forceCloseAll();
+        synchronized (state) {
+            if (housekeeper != null) {
+                housekeeper.shutdown();
+                housekeeper = null;
+            }
+            if (milliseconds > 0) {
+                housekeeper = new PoolHousekeeper(this, milliseconds);
+            }
+        }
+    }
+
+    /*
+     * The number of idle connections the housekeeper keeps available
+     *
+     * @param poolMinimumIdleConnections The minimum number of idle connections
+     */
+    public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+        this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+        forceCloseAll();
+    }
+
+    /*
+     * The maximum time a connection may live before it is closed instead of being reused
+     *
+     * @param milliseconds the maximum lifetime, 0 means no limit
+     */
+    public void setPoolMaximumLifetime(int milliseconds) {
+        this.poolMaximumLifetime = milliseconds;
+        forceCloseAll();
+    }
+
+    /*
+     * The maximum time a connection may sit idle before the housekeeper closes it
+     *
+     * @param milliseconds the maximum idle time, 0 means no limit
+     */
+    public void setPoolMaximumIdleTime(int milliseconds) {
+        this.poolMaximumIdleTime = milliseconds;
+        forceCloseAll();
+    }
+
     public String getDriver() {
         return dataSource.getDriver();
     }
@@ -309,6 +373,22 @@ public class PooledDataSource implements DataSource {
         return poolPingConnectionsNotUsedFor;
     }
 
+    public int getPoolHousekeepingPeriod() {
+        return poolHousekeepingPeriod;
+    }
+
+    public int getPoolMinimumIdleConnections() {
+        return poolMinimumIdleConnections;
+    }
+
+    public int getPoolMaximumLifetime() {
+        return poolMaximumLifetime;
+    }
+
+    public int getPoolMaximumIdleTime() {
+        return poolMaximumIdleTime;
+    }
+
     /**
      * 关闭所有的connection，可以主动调用，也可以在连接池参数发生变化时调用
      * <p>
@@ -359,7 +439,7 @@ public class PooledDataSource implements DataSource {
         return state;
     }
 
-    private int assembleConnectionTypeCode(String url, String username, String password) {
+    protected int assembleConnectionTypeCode(String url, String username, String password) {
         return ("" + url + username + password).hashCode();
     }
 
@@ -376,7 +456,8 @@ public class PooledDataSource implements DataSource {
             state.activeConnections.remove(conn);
             if (conn.isValid()) {
                 // 如果idleConnections还没爆，并且数据库连接信息没发生变化，执行归还
-                if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+                if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+                        && !isExpired(conn.getAge())) {
                     state.accumulatedCheckoutTime += conn.getCheckoutTime();
                     if (!conn.getRealConnection().getAutoCommit()) {
                         conn.getRealConnection().rollback();
@@ -386,6 +467,7 @@ public class PooledDataSource implements DataSource {
                     state.idleConnections.add(newConn);
                     newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
                     newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+                    newConn.copyStatementCache(conn);
                     conn.invalidate();
                     if (log.isDebugEnabled()) {
                         log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
@@ -470,6 +552,7 @@ public class PooledDataSource implements DataSource {
                             conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
                             conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
                             conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+                            conn.copyStatementCache(oldestActiveConnection);
 
                             // invalid超时的连接
                             oldestActiveConnection.invalidate();
@@ -564,43 +647,159 @@ public class PooledDataSource implements DataSource {
 
         if (result) {
             // 只有poolPingEnabled并且空闲时长大于poolPingConnectionsNotUsedFor的连接才会真正的执行ping
-            if (poolPingEnabled) {
+            // 开启了后台维护线程时，由后台线程检测idle连接，借出和归还时不再ping
+            if (poolPingEnabled && poolHousekeepingPeriod <= 0) {
                 if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
-                    try {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-                        }
-                        // 通过realConnection执行ping
-                        Connection realConn = conn.getRealConnection();
-                        Statement statement = realConn.createStatement();
-                        ResultSet rs = statement.executeQuery(poolPingQuery);
-                        rs.close();
-                        statement.close();
-                        if (!realConn.getAutoCommit()) {
-                            realConn.rollback();
-                        }
-                        result = true;
-                        if (log.isDebugEnabled()) {
-                            log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-                        }
-                    } catch (Exception e) {
-                        log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-                        try {
-                            conn.getRealConnection().close();
-                        } catch (Exception e2) {
-                            //ignore
-                        }
-                        result = false;
-                        if (log.isDebugEnabled()) {
-                            log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-                        }
-                    }
+                    result = executePingQuery(conn.getRealConnection());
                 }
             }
         }
         return result;
     }
 
+    /*
+     * Runs the ping query on a connection, closing it if the query fails
+     *
+     * @param realConn - the connection to check
+     * @return True if the ping query succeeded
+     */
+    protected boolean executePingQuery(Connection realConn) {
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("Testing connection " + realConn.hashCode() + " ...");
+            }
+            // 通过realConnection执行ping
+            Statement statement = realConn.createStatement();
+            ResultSet rs = statement.executeQuery(poolPingQuery);
+            rs.close();
+            statement.close();
+            if (!realConn.getAutoCommit()) {
+                realConn.rollback();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Connection " + realConn.hashCode() + " is GOOD!");
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+            try {
+                realConn.close();
+            } catch (Exception e2) {
+                //ignore
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /*
+     * Whether a connection of the given age has exceeded poolMaximumLifetime
+     */
+    protected boolean isExpired(long age) {
+        return poolMaximumLifetime > 0 && age > poolMaximumLifetime;
+    }
+
+    /*
+     * Whether a connection idle for the given time has exceeded poolMaximumIdleTime
+     */
+    protected boolean isIdleTimedOut(long idleTime) {
+        return poolMaximumIdleTime > 0 && idleTime > poolMaximumIdleTime;
+    }
+
+    /**
+     * 后台维护线程定期调用：
+     * 1. 关闭超过最大存活时间的idle连接，以及超过最大空闲时间的idle连接（保留poolMinimumIdleConnections个）
+     * 2. 对空闲时长超过poolPingConnectionsNotUsedFor的idle连接执行ping，检测期间连接不在idleConnections中，不会被借出
+     * 3. idle连接数不足poolMinimumIdleConnections时创建新连接
+     */
+    protected void housekeep() {
+        List<PooledConnection> evicted = new ArrayList<PooledConnection>();
+        List<PooledConnection> toValidate = new ArrayList<PooledConnection>();
+        synchronized (state) {
+            int idleCount = state.idleConnections.size();
+            for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext(); ) {
+                PooledConnection conn = it.next();
+                long idleTime = conn.getTimeElapsedSinceLastUse();
+                if (isExpired(conn.getAge()) || (idleCount > poolMinimumIdleConnections && isIdleTimedOut(idleTime))) {
+                    it.remove();
+                    idleCount--;
+                    evicted.add(conn);
+                } else if (poolPingEnabled && poolPingConnectionsNotUsedFor >= 0 && idleTime > poolPingConnectionsNotUsedFor) {
+                    it.remove();
+                    toValidate.add(conn);
+                }
+            }
+        }
+
+        for (PooledConnection conn : evicted) {
+            conn.invalidate();
+            closeQuietly(conn.getRealConnection());
+            if (log.isDebugEnabled()) {
+                log.debug("Evicted idle connection " + conn.getRealHashCode() + ".");
+            }
+        }
+
+        for (PooledConnection conn : toValidate) {
+            boolean good = executePingQuery(conn.getRealConnection());
+            synchronized (state) {
+                if (good && conn.isValid() && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+                        && state.idleConnections.size() < poolMaximumIdleConnections) {
+                    state.idleConnections.add(conn);
+                    state.notifyAll();
+                    continue;
+                }
+                if (!good) {
+                    state.badConnectionCount++;
+                }
+            }
+            conn.invalidate();
+            closeQuietly(conn.getRealConnection());
+        }
+
+        // 预创建连接，创建过程不持有state锁
+        while (true) {
+            synchronized (state) {
+                if (state.idleConnections.size() >= poolMinimumIdleConnections
+                        || state.idleConnections.size() + state.activeConnections.size() >= poolMaximumActiveConnections) {
+                    break;
+                }
+            }
+            PooledConnection conn;
+            try {
+                conn = new PooledConnection(dataSource.getConnection(), this);
+                conn.setConnectionTypeCode(expectedConnectionTypeCode);
+            } catch (SQLException e) {
+                log.warn("Could not fill the pool up to " + poolMinimumIdleConnections + " idle connections: " + e.getMessage());
+                break;
+            }
+            synchronized (state) {
+                if (state.idleConnections.size() < Math.max(poolMinimumIdleConnections, poolMaximumIdleConnections)) {
+                    state.idleConnections.add(conn);
+                    state.notifyAll();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+                    }
+                    continue;
+                }
+            }
+            closeQuietly(conn.getRealConnection());
+            break;
+        }
+    }
+
+    protected void closeQuietly(Connection realConn) {
+        try {
+            if (!realConn.getAutoCommit()) {
+                realConn.rollback();
+            }
+            realConn.close();
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
     /*
      * Unwraps a pooled connection to get to the 'real' connection
      *
@@ -621,6 +820,9 @@ public class PooledDataSource implements DataSource {
 
     protected void finalize() throws Throwable {
         forceCloseAll();
+        if (housekeeper != null) {
+            housekeeper.shutdown();
+        }
         super.finalize();
     }
 
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -21,13 +21,24 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
@@ -42,13 +53,29 @@ public class BatchExecutor extends BaseExecutor {
 
   public static final int BATCH_UPDATE_RETURN_VALUE = Integer.MIN_VALUE + 1002;
 
+  private static final AtomicInteger PIPELINE_THREAD_NUMBER = new AtomicInteger();
+
   private final List<Statement> statementList = new ArrayList<Statement>();
   private final List<BatchResult> batchResultList = new ArrayList<BatchResult>();
+  // the rows of the inserts sent as multi-row inserts, null for the other statements
+  private final List<MultiRowInsert> multiRowInsertList = new ArrayList<MultiRowInsert>();
   private String currentSql;
   private MappedStatement currentStatement;
+  // the index of the statement of each mapped statement and SQL, when statements are grouped
+  private final Map<CacheKey, Integer> statementIndexes;
+  // the results of the automatic flushes, until the statements are flushed
+  private final List<BatchResult> flushedResults = new ArrayList<BatchResult>();
+  private int batchedUpdates;
+  // executes the automatically flushed statements in the background, when pipelined
+  private ThreadPoolExecutor pipeline;
+  private Semaphore pipelineSlots;
+  private int pipelineDepth;
+  private final List<BatchResult> pipelinedResults = Collections.synchronizedList(new ArrayList<BatchResult>());
+  private volatile Throwable pipelineFailure;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.statementIndexes = configuration.isGroupBatchStatements() ? new HashMap<CacheKey, Integer>() : null;
   }
 
   @Override
@@ -57,28 +84,184 @@ public class BatchExecutor extends BaseExecutor {
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
-    final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-     handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+    final int index = indexOfStatement(ms, sql);
+    if (index >= 0) {
+      BatchResult batchResult = batchResultList.get(index);
+      MultiRowInsert multiRowInsert = multiRowInsertList.get(index);
+      if (multiRowInsert != null) {
+        multiRowInsert.addRow(handler, getConnection(ms.getStatementLog()), parameterObject);
+      } else {
+        Statement stmt = statementList.get(index);
+        applyTransactionTimeout(stmt);
+        handler.parameterize(stmt);//fix Issues 322
+        handler.batch(stmt);
+      }
       batchResult.addParameterObject(parameterObject);
     } else {
       Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
+      MultiRowInsert multiRowInsert = configuration.getMultiRowInsertSize() > 0
+          ? MultiRowInsert.create(ms, sql, configuration.getMultiRowInsertSize()) : null;
+      Statement stmt = null;
+      if (multiRowInsert != null) {
+        multiRowInsert.addRow(handler, connection, parameterObject);
+      } else {
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);    //fix Issues 322
+        handler.batch(stmt);
+      }
       currentSql = sql;
       currentStatement = ms;
+      if (statementIndexes != null) {
+        statementIndexes.put(createStatementKey(ms, sql), statementList.size());
+      }
       statementList.add(stmt);
+      multiRowInsertList.add(multiRowInsert);
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
     }
-  // handler.parameterize(stmt);
-    handler.batch(stmt);
+    batchedUpdates++;
+    if (configuration.getBatchFlushSize() > 0 && batchedUpdates >= configuration.getBatchFlushSize()) {
+      if (configuration.getBatchPipelineDepth() > 0 && canPipelineStatements()) {
+        pipelineStatements();
+      } else {
+        flushedResults.addAll(doFlushStatements(false));
+        if (configuration.getBatchResultListener() != null) {
+          flushedResults.clear();
+        }
+      }
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  /*
+   * Other key generators query through this executor
+   */
+  private boolean canPipelineStatements() {
+    for (BatchResult batchResult : batchResultList) {
+      Class<?> keyGeneratorType = batchResult.getMappedStatement().getKeyGenerator().getClass();
+      if (!NoKeyGenerator.class.equals(keyGeneratorType) && !Jdbc3KeyGenerator.class.equals(keyGeneratorType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Executes the statements on the pipeline thread, waiting while the pipeline is full
+   */
+  private void pipelineStatements() throws SQLException {
+    final List<Statement> statements = new ArrayList<Statement>(statementList);
+    final List<BatchResult> batchResults = new ArrayList<BatchResult>(batchResultList);
+    final List<MultiRowInsert> multiRowInserts = new ArrayList<MultiRowInsert>(multiRowInsertList);
+    final Integer transactionTimeout = transaction.getTimeout();
+    clearStatements();
+    collectPipelinedResults();
+    if (pipeline == null) {
+      pipelineDepth = configuration.getBatchPipelineDepth();
+      pipelineSlots = new Semaphore(pipelineDepth);
+      pipeline = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mybatis-batch-pipeline-" + PIPELINE_THREAD_NUMBER.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      pipeline.allowCoreThreadTimeOut(true);
+    }
+    pipelineSlots.acquireUninterruptibly();
+    try {
+      pipeline.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            // the statements following a failed batch are discarded
+            if (pipelineFailure == null) {
+              List<BatchResult> results = new ArrayList<BatchResult>();
+              executeStatements(statements, batchResults, multiRowInserts, transactionTimeout, results, null);
+              pipelinedResults.addAll(results);
+            }
+          } catch (Throwable t) {
+            pipelineFailure = t;
+          } finally {
+            for (Statement stmt : statements) {
+              closeStatement(stmt);
+            }
+            pipelineSlots.release();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      pipelineSlots.release();
+      for (Statement stmt : statements) {
+        closeStatement(stmt);
+      }
+      throw new ExecutorException("Error pipelining batch statements.  Cause: " + e, e);
+    }
+  }
+
+  private void collectPipelinedResults() {
+    final BatchResultListener listener = configuration.getBatchResultListener();
+    synchronized (pipelinedResults) {
+      for (BatchResult batchResult : pipelinedResults) {
+        if (listener != null) {
+          listener.batchExecuted(batchResult);
+        } else {
+          flushedResults.add(batchResult);
+        }
+      }
+      pipelinedResults.clear();
+    }
+  }
+
+  /*
+   * Waits for the pipelined statements and rethrows the first failure, unless they are rolled back
+   */
+  private void awaitPipelinedStatements(boolean isRollback) throws SQLException {
+    if (pipeline == null) {
+      return;
+    }
+    pipelineSlots.acquireUninterruptibly(pipelineDepth);
+    pipelineSlots.release(pipelineDepth);
+    final Throwable failure = pipelineFailure;
+    pipelineFailure = null;
+    if (isRollback || failure != null) {
+      pipelinedResults.clear();
+      flushedResults.clear();
+    } else {
+      collectPipelinedResults();
+    }
+    if (failure != null && !isRollback) {
+      if (failure instanceof SQLException) {
+        throw (SQLException) failure;
+      } else if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      throw new ExecutorException("Error executing pipelined batch statements.  Cause: " + failure, failure);
+    }
+  }
+
+  private int indexOfStatement(MappedStatement ms, String sql) {
+    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
+      return statementList.size() - 1;
+    }
+    if (statementIndexes != null) {
+      Integer index = statementIndexes.get(createStatementKey(ms, sql));
+      if (index != null) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private CacheKey createStatementKey(MappedStatement ms, String sql) {
+    CacheKey statementKey = new CacheKey();
+    statementKey.update(ms);
+    statementKey.update(sql);
+    return statementKey;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -110,17 +293,37 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<BatchResult>();
+      awaitPipelinedStatements(isRollback);
+      List<BatchResult> results = new ArrayList<BatchResult>(flushedResults);
+      flushedResults.clear();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
+      executeStatements(statementList, batchResultList, multiRowInsertList, transaction.getTimeout(), results,
+          configuration.getBatchResultListener());
+      return results;
+    } finally {
+      for (Statement stmt : statementList) {
+        closeStatement(stmt);
+      }
+      clearStatements();
+    }
+  }
+
+  private void executeStatements(List<Statement> statements, List<BatchResult> batchResults, List<MultiRowInsert> multiRowInserts,
+      Integer transactionTimeout, List<BatchResult> results, BatchResultListener listener) throws SQLException {
+    for (int i = 0, n = statements.size(); i < n; i++) {
+      Statement stmt = statements.get(i);
+      BatchResult batchResult = batchResults.get(i);
+      MultiRowInsert multiRowInsert = multiRowInserts.get(i);
+      try {
+        MappedStatement ms = batchResult.getMappedStatement();
+        if (multiRowInsert != null) {
+          // the keys are generated by the multi-row inserts
+          batchResult.setUpdateCounts(multiRowInsert.execute(this, transactionTimeout));
+        } else {
+          StatementUtil.applyTransactionTimeout(stmt, stmt.getQueryTimeout(), transactionTimeout);
           batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
           List<Object> parameterObjects = batchResult.getParameterObjects();
           KeyGenerator keyGenerator = ms.getKeyGenerator();
           if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
@@ -133,30 +336,47 @@ public class BatchExecutor extends BaseExecutor {
           }
           // Close statement to close cursor #1109
           closeStatement(stmt);
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-          }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
         }
-        results.add(batchResult);
+      } catch (BatchUpdateException e) {
+        StringBuilder message = new StringBuilder();
+        message.append(batchResult.getMappedStatement().getId())
+            .append(" (batch index #")
+            .append(i + 1)
+            .append(")")
+            .append(" failed.");
+        if (i > 0) {
+          message.append(" ")
+              .append(i)
+              .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+        throw new BatchExecutorException(message.toString(), e, results, batchResult);
       }
-      return results;
+      results.add(batchResult);
+      if (listener != null) {
+        listener.batchExecuted(batchResult);
+      }
+    }
+  }
+
+  private void clearStatements() {
+    currentSql = null;
+    statementList.clear();
+    batchResultList.clear();
+    multiRowInsertList.clear();
+    if (statementIndexes != null) {
+      statementIndexes.clear();
+    }
+    batchedUpdates = 0;
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    try {
+      super.close(forceRollback);
     } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
+      if (pipeline != null) {
+        pipeline.shutdown();
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
     }
   }
 
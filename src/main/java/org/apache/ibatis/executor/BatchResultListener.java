@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * Receives the result of each batch executed by a {@link BatchExecutor}.
+ * <p>
+ * When a listener is configured, the results of the batches flushed automatically
+ * (see {@link org.apache.ibatis.session.Configuration#setBatchFlushSize(int)}) are passed to it
+ * and then dropped, instead of being kept until the statements are flushed.
+ * The results of the batches executed in the background are passed to it on the thread of the session,
+ * when more updates are added or when the statements are flushed.
+ * The listener is shared by all the sessions of a configuration.
+ *
+ * @since 3.4.7
+ */
+public interface BatchResultListener {
+
+  void batchExecuted(BatchResult batchResult);
+
+}
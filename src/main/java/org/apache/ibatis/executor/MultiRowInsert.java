@@ -0,0 +1,237 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * The rows batched by a {@link BatchExecutor} for a single-row <code>INSERT ... VALUES (...)</code> statement,
+ * which are sent as multi-row <code>INSERT ... VALUES (...), (...), ...</code> statements.
+ * <p>
+ * The parameters of a row are recorded when it is added, so like with JDBC batches,
+ * later changes to the parameter object are not seen.
+ */
+final class MultiRowInsert {
+
+  private static final Pattern INSERT_VALUES = Pattern.compile("^\\s*insert\\s.+?(?<=[\\s)])values\\s*(\\(.*\\))\\s*$",
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private final MappedStatement mappedStatement;
+  private final String prefix;
+  private final String values;
+  private final int rowsPerStatement;
+  private final List<Object> parameterObjects = new ArrayList<Object>();
+  private final List<List<ParameterSetter>> rows = new ArrayList<List<ParameterSetter>>();
+  private Connection connection;
+  private int parameterCount;
+
+  private MultiRowInsert(MappedStatement mappedStatement, String prefix, String values, int rowsPerStatement) {
+    this.mappedStatement = mappedStatement;
+    this.prefix = prefix;
+    this.values = values;
+    this.rowsPerStatement = rowsPerStatement;
+  }
+
+  /**
+   * Returns null if the statement is not a single-row insert with a prepared statement,
+   * or if its keys are not generated by JDBC.
+   */
+  static MultiRowInsert create(MappedStatement ms, String sql, int rowsPerStatement) {
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED) {
+      return null;
+    }
+    final Class<? extends KeyGenerator> keyGeneratorType = ms.getKeyGenerator().getClass();
+    if (!NoKeyGenerator.class.equals(keyGeneratorType) && !Jdbc3KeyGenerator.class.equals(keyGeneratorType)) {
+      return null;
+    }
+    final Matcher matcher = INSERT_VALUES.matcher(sql);
+    if (!matcher.matches() || !isSingleGroup(matcher.group(1))) {
+      return null;
+    }
+    return new MultiRowInsert(ms, sql.substring(0, matcher.start(1)), matcher.group(1), rowsPerStatement);
+  }
+
+  /*
+   * Whether the first parenthesis is closed by the last one
+   */
+  private static boolean isSingleGroup(String group) {
+    int depth = 0;
+    char quote = 0;
+    for (int i = 0; i < group.length(); i++) {
+      final char c = group.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i == group.length() - 1;
+      }
+    }
+    return false;
+  }
+
+  void addRow(StatementHandler handler, Connection connection, Object parameterObject) throws SQLException {
+    final List<ParameterSetter> row = new ArrayList<ParameterSetter>();
+    handler.parameterize(ParameterRecorder.newInstance(connection, row));
+    if (rows.isEmpty()) {
+      this.connection = connection;
+      parameterCount = handler.getBoundSql().getParameterMappings().size();
+    }
+    rows.add(row);
+    parameterObjects.add(parameterObject);
+  }
+
+  /**
+   * Inserts the rows on the connection of the first row and returns an update count per row.
+   */
+  int[] execute(Executor executor, Integer transactionTimeout) throws SQLException {
+    final int[] updateCounts = new int[rows.size()];
+    for (int start = 0; start < rows.size(); start += rowsPerStatement) {
+      final int end = Math.min(start + rowsPerStatement, rows.size());
+      try {
+        final int updateCount = execute(executor, transactionTimeout, start, end);
+        Arrays.fill(updateCounts, start, end, updateCount == end - start ? 1 : Statement.SUCCESS_NO_INFO);
+      } catch (SQLException e) {
+        throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(updateCounts, start), e);
+      }
+    }
+    return updateCounts;
+  }
+
+  private int execute(Executor executor, Integer transactionTimeout, int start, int end) throws SQLException {
+    final StringBuilder sql = new StringBuilder(prefix.length() + (values.length() + 2) * (end - start)).append(prefix).append(values);
+    for (int i = start + 1; i < end; i++) {
+      sql.append(", ").append(values);
+    }
+    final Object parameterObject = parameterObjects.get(start);
+    final BoundSql boundSql = new BoundSql(mappedStatement.getConfiguration(), sql.toString(), Collections.<ParameterMapping>emptyList(), parameterObject);
+    final StatementHandler handler = mappedStatement.getConfiguration().newStatementHandler(executor, mappedStatement, parameterObject, RowBounds.DEFAULT, null, boundSql);
+    Statement stmt = null;
+    try {
+      stmt = handler.prepare(connection, transactionTimeout);
+      final PreparedStatement ps = (PreparedStatement) stmt;
+      for (int i = start; i < end; i++) {
+        for (ParameterSetter setter : rows.get(i)) {
+          setter.apply(ps, (i - start) * parameterCount);
+        }
+      }
+      final int updateCount = ps.executeUpdate();
+      final KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
+      if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+        ((Jdbc3KeyGenerator) keyGenerator).processBatch(mappedStatement, ps, parameterObjects.subList(start, end));
+      }
+      return updateCount;
+    } finally {
+      if (stmt != null) {
+        stmt.close();
+      }
+    }
+  }
+
+  private static final class ParameterSetter {
+    private final Method method;
+    private final Object[] args;
+
+    ParameterSetter(Method method, Object[] args) {
+      this.method = method;
+      this.args = args;
+    }
+
+    void apply(PreparedStatement ps, int offset) throws SQLException {
+      final Object[] offsetArgs = args.clone();
+      offsetArgs[0] = (Integer) args[0] + offset;
+      try {
+        method.invoke(ps, offsetArgs);
+      } catch (InvocationTargetException e) {
+        final Throwable cause = ExceptionUtil.unwrapThrowable(e);
+        if (cause instanceof SQLException) {
+          throw (SQLException) cause;
+        }
+        throw new ExecutorException("Error setting parameter " + offsetArgs[0] + ".  Cause: " + cause, cause);
+      } catch (IllegalAccessException e) {
+        throw new ExecutorException("Error setting parameter " + offsetArgs[0] + ".  Cause: " + e, e);
+      }
+    }
+  }
+
+  /*
+   * A PreparedStatement that only records the parameters set by a parameter handler
+   */
+  private static final class ParameterRecorder implements InvocationHandler {
+    private final Connection connection;
+    private final List<ParameterSetter> setters;
+
+    private ParameterRecorder(Connection connection, List<ParameterSetter> setters) {
+      this.connection = connection;
+      this.setters = setters;
+    }
+
+    static PreparedStatement newInstance(Connection connection, List<ParameterSetter> setters) {
+      final ClassLoader cl = PreparedStatement.class.getClassLoader();
+      return (PreparedStatement) Proxy.newProxyInstance(cl, new Class<?>[] { PreparedStatement.class },
+          new ParameterRecorder(connection, setters));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+      final String name = method.getName();
+      if (method.getDeclaringClass() == PreparedStatement.class && name.startsWith("set")
+          && params != null && params.length > 0 && params[0] instanceof Integer) {
+        setters.add(new ParameterSetter(method, params));
+        return null;
+      } else if ("clearParameters".equals(name)) {
+        setters.clear();
+        return null;
+      } else if ("getConnection".equals(name)) {
+        return connection;
+      } else if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, params);
+      }
+      throw new ExecutorException("Unsupported call to " + name + " while recording the parameters of a multi-row insert.");
+    }
+  }
+
+}
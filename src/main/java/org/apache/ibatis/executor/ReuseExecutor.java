@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,9 +19,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementHandler;
@@ -31,6 +29,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.StatementCacheScope;
 import org.apache.ibatis.transaction.Transaction;
 
 /**
@@ -38,10 +37,24 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class ReuseExecutor extends BaseExecutor {
 
-  private final Map<String, Statement> statementMap = new HashMap<String, Statement>();
+  private final StatementCache statementCache;
+  // the cache of the pooled connection, when statements are cached by connection
+  private StatementCache connectionStatementCache;
+  // the connection of the cached statements
+  private Connection statementCacheConnection;
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.statementCache = new StatementCache(configuration.getStatementCacheSize());
+  }
+
+  /**
+   * Returns the statements reused by this executor.
+   *
+   * @since 3.4.7
+   */
+  public StatementCache getStatementCache() {
+    return connectionStatementCache != null ? connectionStatementCache : statementCache;
   }
 
   @Override
@@ -70,43 +83,47 @@ public class ReuseExecutor extends BaseExecutor {
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
-    for (Statement stmt : statementMap.values()) {
-      closeStatement(stmt);
-    }
-    statementMap.clear();
+    statementCache.clear();
+    connectionStatementCache = null;
+    statementCacheConnection = null;
     return Collections.emptyList();
   }
 
   private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
-    Statement stmt;
     BoundSql boundSql = handler.getBoundSql();
     String sql = boundSql.getSql();
-    if (hasStatementFor(sql)) {
-      stmt = getStatement(sql);
+    StatementCache cache = resolveStatementCache();
+    Statement stmt = cache.get(sql);
+    if (stmt != null) {
       applyTransactionTimeout(stmt);
     } else {
       Connection connection = getConnection(statementLog);
       stmt = handler.prepare(connection, transaction.getTimeout());
-      putStatement(sql, stmt);
+      cache.put(sql, stmt);
     }
     handler.parameterize(stmt);
     return stmt;
   }
 
-  private boolean hasStatementFor(String sql) {
-    try {
-      return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
-    } catch (SQLException e) {
-      return false;
+  /*
+   * Checks the connection once per connection, instead of once per statement
+   */
+  private StatementCache resolveStatementCache() throws SQLException {
+    Connection connection = transaction.getConnection();
+    if (connection != statementCacheConnection) {
+      // the statements of another connection cannot be reused
+      statementCache.clear();
+      connectionStatementCache = null;
+      if (configuration.getStatementCacheScope() == StatementCacheScope.CONNECTION
+          && connection.isWrapperFor(StatementCache.class)) {
+        connectionStatementCache = connection.unwrap(StatementCache.class);
+        // statements kept with a connection outlive the session, so they are always bounded
+        int maxSize = configuration.getStatementCacheSize();
+        connectionStatementCache.setMaxSize(maxSize > 0 ? maxSize : StatementCache.DEFAULT_CONNECTION_MAX_SIZE);
+      }
+      statementCacheConnection = connection;
     }
-  }
-
-  private Statement getStatement(String s) {
-    return statementMap.get(s);
-  }
-
-  private void putStatement(String sql, Statement stmt) {
-    statementMap.put(sql, stmt);
+    return getStatementCache();
   }
 
 }
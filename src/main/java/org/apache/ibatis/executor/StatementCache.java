@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statements reused by a {@link ReuseExecutor}, by SQL.
+ * <p>
+ * When a maximum size is set, the least recently used statement is closed and evicted when the cache is full.
+ * A cache is used by one session at a time: either by its executor, or by the sessions that borrow its connection
+ * from a pooled data source (see {@link org.apache.ibatis.session.StatementCacheScope#CONNECTION}).
+ *
+ * @since 3.4.7
+ */
+public final class StatementCache {
+
+  /**
+   * The maximum size of the caches kept on pooled connections, when no statement cache size is configured.
+   */
+  public static final int DEFAULT_CONNECTION_MAX_SIZE = 64;
+
+  private final Map<String, Statement> statements = new LinkedHashMap<String, Statement>(16, 0.75f, true);
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private int maxSize;
+
+  /**
+   * Creates a cache without maximum size.
+   */
+  public StatementCache() {
+    this(0);
+  }
+
+  public StatementCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  Statement get(String sql) {
+    Statement statement = statements.get(sql);
+    if (statement != null) {
+      hitCount.incrementAndGet();
+    } else {
+      missCount.incrementAndGet();
+    }
+    return statement;
+  }
+
+  void put(String sql, Statement statement) {
+    Statement previous = statements.put(sql, statement);
+    if (previous != null && previous != statement) {
+      close(previous);
+    }
+    evict();
+  }
+
+  /**
+   * Closes and removes all the statements.
+   */
+  public void clear() {
+    for (Statement statement : statements.values()) {
+      close(statement);
+    }
+    statements.clear();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Sets the maximum number of statements, 0 for no maximum, evicting the statements above it.
+   */
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    evict();
+  }
+
+  public int getSize() {
+    return statements.size();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  private void evict() {
+    if (maxSize <= 0) {
+      return;
+    }
+    Iterator<Statement> iterator = statements.values().iterator();
+    while (statements.size() > maxSize) {
+      Statement eldest = iterator.next();
+      iterator.remove();
+      close(eldest);
+      evictionCount.incrementAndGet();
+    }
+  }
+
+  private void close(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+}
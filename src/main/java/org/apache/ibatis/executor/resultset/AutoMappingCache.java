@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Caches the auto-mappings of a result map across executions.
+ * <p>
+ * An entry is keyed by the result map, the column prefix, the type of the result object and the labels,
+ * JDBC types and classes of all the columns of the result set, so it is only used for a result set of
+ * the same shape. The unknown columns are kept as well, so the
+ * {@link org.apache.ibatis.session.AutoMappingUnknownColumnBehavior} still applies to every execution.
+ * <p>
+ * When the cache is full it is cleared. The configuration clears it when a setting that changes the
+ * auto-mappings is changed.
+ *
+ * @since 3.4.7
+ */
+public class AutoMappingCache {
+
+  private final ConcurrentMap<CacheKey, Entry> entries = new ConcurrentHashMap<CacheKey, Entry>();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private volatile int maxSize;
+
+  public AutoMappingCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    clear();
+  }
+
+  public int getSize() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  CacheKey createKey(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, Class<?> resultType) {
+    if (maxSize <= 0) {
+      return null;
+    }
+    final List<String> columnNames = rsw.getColumnNames();
+    final List<String> classNames = rsw.getClassNames();
+    final List<JdbcType> jdbcTypes = rsw.getJdbcTypes();
+    final CacheKey cacheKey = new CacheKey();
+    cacheKey.update(resultMap.getId());
+    cacheKey.update(columnPrefix);
+    cacheKey.update(resultType);
+    for (int i = 0; i < columnNames.size(); i++) {
+      cacheKey.update(columnNames.get(i));
+      cacheKey.update(jdbcTypes.get(i));
+      cacheKey.update(classNames.get(i));
+    }
+    return cacheKey;
+  }
+
+  Entry get(CacheKey cacheKey) {
+    if (cacheKey == null) {
+      return null;
+    }
+    final Entry entry = entries.get(cacheKey);
+    if (entry != null) {
+      hitCount.incrementAndGet();
+    } else {
+      missCount.incrementAndGet();
+    }
+    return entry;
+  }
+
+  void put(CacheKey cacheKey, Entry entry) {
+    if (cacheKey == null) {
+      return;
+    }
+    if (entries.size() >= maxSize && !entries.containsKey(cacheKey)) {
+      entries.clear();
+    }
+    entries.put(cacheKey, entry);
+  }
+
+  static final class Entry {
+    final List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMappings;
+    final List<UnknownColumn> unknownColumns;
+
+    Entry(List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMappings, List<UnknownColumn> unknownColumns) {
+      this.autoMappings = autoMappings;
+      this.unknownColumns = unknownColumns;
+    }
+  }
+
+  static final class UnknownColumn {
+    final String columnName;
+    final String property;
+    final Class<?> propertyType;
+
+    UnknownColumn(String columnName, String property, Class<?> propertyType) {
+      this.columnName = columnName;
+      this.property = property;
+      this.propertyType = propertyType;
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.PropertyPath;
+
+/**
+ * The property mappings of a result map resolved against the columns of one result set.
+ * <p>
+ * Only the mappings that apply to the result set are kept, so rows are mapped without checking
+ * the mapped columns again. When enabled, the column of each mapping is resolved to its index
+ * and read with {@link org.apache.ibatis.type.TypeHandler#getResult(java.sql.ResultSet, int)}.
+ */
+final class ResultMappingPlan {
+
+  private final ResultMapping[] propertyMappings;
+  private final int[] columnIndexes;
+  private final PropertyPath[] properties;
+  private List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMappings;
+
+  ResultMappingPlan(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, boolean readColumnsByIndex) throws SQLException {
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    final List<ResultMapping> mappings = new ArrayList<ResultMapping>();
+    final List<Integer> indexes = new ArrayList<Integer>();
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (propertyMapping.getNestedResultMapId() != null) {
+        // the user added a column attribute to a nested result map, ignore it
+        column = null;
+      }
+      if (propertyMapping.isCompositeResult()
+          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || propertyMapping.getResultSet() != null) {
+        mappings.add(propertyMapping);
+        indexes.add(readColumnsByIndex && isColumnValue(propertyMapping) ? rsw.getColumnIndex(column) : 0);
+      }
+    }
+    this.propertyMappings = mappings.toArray(new ResultMapping[mappings.size()]);
+    this.columnIndexes = new int[propertyMappings.length];
+    this.properties = new PropertyPath[propertyMappings.length];
+    for (int i = 0; i < propertyMappings.length; i++) {
+      columnIndexes[i] = indexes.get(i);
+      String property = propertyMappings[i].getProperty();
+      properties[i] = property == null ? null : PropertyPath.forName(property);
+    }
+  }
+
+  int size() {
+    return propertyMappings.length;
+  }
+
+  ResultMapping getPropertyMapping(int i) {
+    return propertyMappings[i];
+  }
+
+  /**
+   * Returns the 1-based index of the column of a mapping, or 0 if the column is read by its label.
+   */
+  int getColumnIndex(int i) {
+    return columnIndexes[i];
+  }
+
+  /**
+   * Returns the property of a mapping, or null if the mapping has no property.
+   */
+  PropertyPath getProperty(int i) {
+    return properties[i];
+  }
+
+  List<DefaultResultSetHandler.UnMappedColumnAutoMapping> getAutoMappings() {
+    return autoMappings;
+  }
+
+  void setAutoMappings(List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMappings) {
+    this.autoMappings = autoMappings;
+  }
+
+  private static boolean isColumnValue(ResultMapping propertyMapping) {
+    return propertyMapping.getNestedQueryId() == null && propertyMapping.getResultSet() == null
+        && !propertyMapping.isCompositeResult();
+  }
+
+  private static String prependPrefix(String columnName, String prefix) {
+    if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
+      return columnName;
+    }
+    return prefix + columnName;
+  }
+
+}
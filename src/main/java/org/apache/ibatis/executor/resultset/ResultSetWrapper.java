@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -43,20 +43,32 @@ public class ResultSetWrapper {
   private final ResultSet resultSet;
   private final TypeHandlerRegistry typeHandlerRegistry;
   private final List<String> columnNames = new ArrayList<String>();
+  private final List<String> upperColumnNames = new ArrayList<String>();
+  private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
   private final List<String> classNames = new ArrayList<String>();
   private final List<JdbcType> jdbcTypes = new ArrayList<JdbcType>();
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  private final Map<String, ResultMappingPlan> resultMappingPlans = new HashMap<String, ResultMappingPlan>();
+  private final boolean readColumnsByIndex;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
+    this.readColumnsByIndex = configuration.isReadColumnsByIndex();
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+      final String columnName = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      columnNames.add(columnName);
+      upperColumnNames.add(upperColumnName);
+      if (!columnIndexes.containsKey(upperColumnName)) {
+        // like ResultSet#findColumn, the first matching column wins
+        columnIndexes.put(upperColumnName, i);
+      }
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
     }
@@ -74,13 +86,24 @@ public class ResultSetWrapper {
     return Collections.unmodifiableList(classNames);
   }
 
+  List<JdbcType> getJdbcTypes() {
+    return jdbcTypes;
+  }
+
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0 ; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
+    final int columnIndex = getColumnIndex(columnName);
+    return columnIndex > 0 ? jdbcTypes.get(columnIndex - 1) : null;
+  }
+
+  /**
+   * Returns the 1-based index of the first column with the given name, ignoring case, or 0 if there is none.
+   */
+  int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return 0;
     }
-    return null;
+    final Integer columnIndex = columnIndexes.get(columnName.toUpperCase(Locale.ENGLISH));
+    return columnIndex == null ? 0 : columnIndex;
   }
 
   /**
@@ -142,12 +165,12 @@ public class ResultSetWrapper {
     List<String> unmappedColumnNames = new ArrayList<String>();
     final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
     final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-    for (String columnName : columnNames) {
-      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+    for (int i = 0; i < columnNames.size(); i++) {
+      final String upperColumnName = upperColumnNames.get(i);
       if (mappedColumns.contains(upperColumnName)) {
         mappedColumnNames.add(upperColumnName);
       } else {
-        unmappedColumnNames.add(columnName);
+        unmappedColumnNames.add(columnNames.get(i));
       }
     }
     mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
@@ -172,6 +195,16 @@ public class ResultSetWrapper {
     return unMappedColumnNames;
   }
 
+  ResultMappingPlan getResultMappingPlan(ResultMap resultMap, String columnPrefix) throws SQLException {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    ResultMappingPlan plan = resultMappingPlans.get(mapKey);
+    if (plan == null) {
+      plan = new ResultMappingPlan(this, resultMap, columnPrefix, readColumnsByIndex);
+      resultMappingPlans.put(mapKey, plan);
+    }
+    return plan;
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Identifies the object mapped from a row by a nested result map.
+ * <p>
+ * Unlike a {@link org.apache.ibatis.cache.CacheKey}, the values are kept in one array sized when the key is built
+ * and the hash code is computed once. A key combined with the key of its parent refers to it instead of copying it.
+ */
+final class RowKey {
+
+  static final RowKey NULL_ROW_KEY = new RowKey(new Object[0], null);
+
+  private final Object[] values;
+  private final RowKey parent;
+  private final int hashCode;
+
+  private RowKey(Object[] values, RowKey parent) {
+    this.values = values;
+    this.parent = parent;
+    int hash = 17;
+    for (Object value : values) {
+      hash = 31 * hash + ArrayUtil.hashCode(value);
+    }
+    this.hashCode = parent == null ? hash : 31 * hash + parent.hashCode;
+  }
+
+  /**
+   * Returns the key of an object that belongs to the object of the parent key,
+   * or {@link #NULL_ROW_KEY} if one of the keys is.
+   */
+  static RowKey combine(RowKey rowKey, RowKey parentRowKey) {
+    if (rowKey == NULL_ROW_KEY || parentRowKey == NULL_ROW_KEY) {
+      return NULL_ROW_KEY;
+    }
+    return new RowKey(rowKey.values, parentRowKey);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof RowKey)) {
+      return false;
+    }
+    final RowKey rowKey = (RowKey) object;
+    if (hashCode != rowKey.hashCode || values.length != rowKey.values.length) {
+      return false;
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (!ArrayUtil.equals(values[i], rowKey.values[i])) {
+        return false;
+      }
+    }
+    return parent == null ? rowKey.parent == null : parent.equals(rowKey.parent);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder().append(hashCode);
+    for (Object value : values) {
+      builder.append(':').append(ArrayUtil.toString(value));
+    }
+    if (parent != null) {
+      builder.append(" in ").append(parent);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Collects the values of a key. It is reused for the keys of all the rows.
+   */
+  static final class Builder {
+    private Object[] values = new Object[16];
+    private int size;
+
+    void update(Object value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    void reset() {
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+    }
+
+    /**
+     * Returns the key of the collected values, or {@link #NULL_ROW_KEY} if there are less than two,
+     * and clears the builder.
+     */
+    RowKey build() {
+      final RowKey rowKey = size < 2 ? NULL_ROW_KEY : new RowKey(Arrays.copyOf(values, size), null);
+      reset();
+      return rowKey;
+    }
+  }
+
+}
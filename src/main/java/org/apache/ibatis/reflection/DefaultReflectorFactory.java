@@ -44,13 +44,22 @@ public class DefaultReflectorFactory implements ReflectorFactory {
             // synchronized (type) removed see issue #461
             Reflector cached = reflectorMap.get(type);
             if (cached == null) {
-                cached = new Reflector(type);
+                cached = newReflector(type);
                 reflectorMap.put(type, cached);
             }
             return cached;
         } else {
-            return new Reflector(type);
+            return newReflector(type);
         }
     }
 
+    /**
+     * 创建Reflector，子类可以覆盖
+     *
+     * @since 3.4.7
+     */
+    protected Reflector newReflector(Class<?> type) {
+        return new Reflector(type);
+    }
+
 }
@@ -0,0 +1,254 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.lang.UsesJava8;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 直接以mapper方法参数数组为存储的ParamMap，key到参数位置的对应关系由ParamNameResolver预先计算
+ * <p>
+ * get、containsKey、size只查找预先计算的key，不创建HashMap的table；
+ * 其他操作（修改、遍历等）先把参数复制到HashMap中，之后与普通的ParamMap完全一致
+ *
+ * @since 3.4.7
+ */
+final class IndexedParamMap<V> extends ParamMap<V> {
+
+    private static final long serialVersionUID = 4390146417843396318L;
+
+    // 按照ParamMap的put顺序排列的key
+    private final transient String[] keys;
+    // keys[i]对应的参数位置
+    private final transient int[] indexes;
+    // 参数数组，复制到HashMap后为null
+    private transient Object[] args;
+
+    IndexedParamMap(String[] keys, int[] indexes, Object[] args) {
+        this.keys = keys;
+        this.indexes = indexes;
+        this.args = args;
+    }
+
+    private int slot(Object key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key || keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把参数复制到HashMap中，put的顺序与ParamNameResolver原来的一致
+     */
+    @SuppressWarnings("unchecked")
+    private void inflate() {
+        Object[] args = this.args;
+        if (args != null) {
+            this.args = null;
+            for (int i = 0; i < keys.length; i++) {
+                super.put(keys[i], (V) args[indexes[i]]);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (args != null) {
+            int slot = slot(key);
+            if (slot >= 0) {
+                return (V) args[indexes[slot]];
+            }
+            // 抛出与ParamMap相同的异常
+            inflate();
+        }
+        return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (args != null) {
+            return slot(key) >= 0;
+        }
+        return super.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        if (args != null) {
+            return keys.length;
+        }
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (args != null) {
+            return keys.length == 0;
+        }
+        return super.isEmpty();
+    }
+
+    @Override
+    public V put(String key, V value) {
+        inflate();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> m) {
+        inflate();
+        super.putAll(m);
+    }
+
+    @Override
+    public V remove(Object key) {
+        inflate();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        this.args = null;
+        super.clear();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        inflate();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        inflate();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        inflate();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        inflate();
+        return super.entrySet();
+    }
+
+    @Override
+    public Object clone() {
+        inflate();
+        return super.clone();
+    }
+
+    @UsesJava8
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        inflate();
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @UsesJava8
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+        inflate();
+        super.forEach(action);
+    }
+
+    @UsesJava8
+    @Override
+    public V putIfAbsent(String key, V value) {
+        inflate();
+        return super.putIfAbsent(key, value);
+    }
+
+    @UsesJava8
+    @Override
+    public boolean remove(Object key, Object value) {
+        inflate();
+        return super.remove(key, value);
+    }
+
+    @UsesJava8
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+        inflate();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @UsesJava8
+    @Override
+    public V replace(String key, V value) {
+        inflate();
+        return super.replace(key, value);
+    }
+
+    @UsesJava8
+    @Override
+    public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+        inflate();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @UsesJava8
+    @Override
+    public V computeIfPresent(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+        inflate();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @UsesJava8
+    @Override
+    public V compute(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+        inflate();
+        return super.compute(key, remappingFunction);
+    }
+
+    @UsesJava8
+    @Override
+    public V merge(String key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        inflate();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @UsesJava8
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super V, ? extends V> function) {
+        inflate();
+        super.replaceAll(function);
+    }
+
+    /**
+     * 序列化为普通的ParamMap
+     */
+    private Object writeReplace() {
+        ParamMap<V> paramMap = new ParamMap<V>();
+        paramMap.putAll(this);
+        return paramMap;
+    }
+
+}
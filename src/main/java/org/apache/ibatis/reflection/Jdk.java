@@ -1,5 +1,5 @@
 /**
- * Copyright 2009-2017 the original author or authors.
+ * Copyright 2009-2018 the original author or authors.
  * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,6 +59,42 @@ public class Jdk {
         dateAndTimeApiExists = available;
     }
 
+    /**
+     * <code>true</code> if <code>java.lang.invoke.MethodHandle</code> is available.
+     * <p>
+     * 检查jdk1.7的MethodHandle是否存在
+     */
+    public static final boolean methodHandleExists;
+
+    static {
+        boolean available = false;
+        try {
+            Resources.classForName("java.lang.invoke.MethodHandle");
+            available = true;
+        } catch (ClassNotFoundException e) {
+            // ignore
+        }
+        methodHandleExists = available;
+    }
+
+    /**
+     * <code>true</code> if <code>java.lang.invoke.LambdaMetafactory</code> is available.
+     * <p>
+     * 检查jdk1.8的LambdaMetafactory是否存在
+     */
+    public static final boolean lambdaMetafactoryExists;
+
+    static {
+        boolean available = false;
+        try {
+            Resources.classForName("java.lang.invoke.LambdaMetafactory");
+            available = true;
+        } catch (ClassNotFoundException e) {
+            // ignore
+        }
+        lambdaMetafactoryExists = available;
+    }
+
     private Jdk() {
         super();
     }
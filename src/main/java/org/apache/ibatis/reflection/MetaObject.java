@@ -1,5 +1,5 @@
 /**
- * Copyright 2009-2017 the original author or authors.
+ * Copyright 2009-2018 the original author or authors.
  * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@
 package org.apache.ibatis.reflection;
 
 import org.apache.ibatis.reflection.factory.ObjectFactory;
-import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
 import org.apache.ibatis.reflection.wrapper.MapWrapper;
@@ -137,53 +136,46 @@ public class MetaObject {
 
 
     /**
-     * 获取name对应的值
+     * 获取name对应的值，name会被解析为PropertyPath并缓存
      *
      * @param name
      * @return
      */
     public Object getValue(String name) {
-        PropertyTokenizer prop = new PropertyTokenizer(name);
-        if (prop.hasNext()) {
-            // 有children，先解析出当前层级的MetaObject，再在当前层级上继续get children value
-            MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
-            if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
-                return null;
-            } else {
-                return metaValue.getValue(prop.getChildren());
-            }
-        } else {
-            // 不存在children，直接调用ObjectWrapper的get
-            return objectWrapper.get(prop);
-        }
+        return PropertyPath.forName(name).getValue(this);
+    }
+
+    /**
+     * 获取预先解析好的path对应的值
+     *
+     * @param path
+     * @return
+     * @since 3.4.7
+     */
+    public Object getValue(PropertyPath path) {
+        return path.getValue(this);
     }
 
     /**
-     * 设置property的值为value
+     * 设置property的值为value，中间层级为null时会实例化（value为null时不实例化）
      *
      * Map<User></> 007 --> JB ([007].name)
      * @param name
      * @param value
      */
     public void setValue(String name, Object value) {
-        PropertyTokenizer prop = new PropertyTokenizer(name);
-        if (prop.hasNext()) {
-            MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
-            // 如果metaValue为null，但是value不是空，或者prop还有children（即使当前metaValue为null，也要实例化一个出来），则调用setValue
-            if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
-                if (value == null && prop.getChildren() != null) {
-                    // don't instantiate child path if value is null
-                    return;
-                } else {
-                    // 初始化当前prop对应的对象
-                    metaValue = objectWrapper.instantiatePropertyValue(name, prop, objectFactory);
-                }
-            }
-            // 到这一步，metaValue肯定不为空
-            metaValue.setValue(prop.getChildren(), value);
-        } else {
-            objectWrapper.set(prop, value);
-        }
+        PropertyPath.forName(name).setValue(this, value);
+    }
+
+    /**
+     * 设置预先解析好的path对应的值
+     *
+     * @param path
+     * @param value
+     * @since 3.4.7
+     */
+    public void setValue(PropertyPath path, Object value) {
+        path.setValue(this, value);
     }
 
     /**
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+/**
+ * 创建的Reflector通过LambdaMetafactory或MethodHandle调用get、set方法和field，而不是反射
+ * <p>
+ * 结果映射时每一行的每一列都会调用一次set方法，参数绑定时每个#{}都会调用一次get方法，避免了Method.invoke的开销；
+ * 生成invoker的开销在创建Reflector时，每个类只有一次。jdk1.6下与DefaultReflectorFactory相同
+ * <p>
+ * 通过&lt;reflectorFactory type="org.apache.ibatis.reflection.MethodHandleReflectorFactory"/&gt;使用
+ *
+ * @since 3.4.7
+ */
+public class MethodHandleReflectorFactory extends DefaultReflectorFactory {
+
+    @Override
+    protected Reflector newReflector(Class<?> type) {
+        return new Reflector(type, true);
+    }
+
+}
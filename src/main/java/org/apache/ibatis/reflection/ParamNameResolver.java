@@ -1,5 +1,5 @@
 /**
- * Copyright 2009-2017 the original author or authors.
+ * Copyright 2009-2018 the original author or authors.
  * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,6 @@
 package org.apache.ibatis.reflection;
 
 import org.apache.ibatis.annotations.Param;
-import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -25,6 +24,7 @@ import org.apache.ibatis.session.RowBounds;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -57,6 +57,10 @@ public class ParamNameResolver {
     // 是否有@Param注解
     private boolean hasParamAnnotation;
 
+    // getNamedParams返回的ParamMap的key（names加上param1，param2...），以及每个key对应的参数位置
+    private final String[] paramMapKeys;
+    private final int[] paramMapIndexes;
+
     public ParamNameResolver(Configuration config, Method method) {
         final Class<?>[] paramTypes = method.getParameterTypes();
         // 获取参数上的注解
@@ -95,6 +99,24 @@ public class ParamNameResolver {
             map.put(paramIndex, name);
         }
         names = Collections.unmodifiableSortedMap(map);
+        // 预先计算ParamMap的key，同名的key后面的覆盖前面的
+        final Map<String, Integer> keys = new LinkedHashMap<String, Integer>();
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : names.entrySet()) {
+            keys.put(entry.getValue(), entry.getKey());
+            // add generic param names (param1, param2, ...)
+            final String genericParamName = GENERIC_NAME_PREFIX + String.valueOf(i + 1);
+            // ensure not to overwrite parameter named with @Param
+            if (!names.containsValue(genericParamName)) {
+                keys.put(genericParamName, entry.getKey());
+            }
+            i++;
+        }
+        paramMapKeys = keys.keySet().toArray(new String[keys.size()]);
+        paramMapIndexes = new int[paramMapKeys.length];
+        for (int k = 0; k < paramMapKeys.length; k++) {
+            paramMapIndexes[k] = keys.get(paramMapKeys[k]);
+        }
     }
 
     /**
@@ -149,20 +171,8 @@ public class ParamNameResolver {
             // 如果没有param注解并且names只有一个，直接返回对应位置的args
             return args[names.firstKey()];
         } else {
-            final Map<String, Object> param = new ParamMap<Object>();
-            int i = 0;
-            // 返回map，包含了names作为key，还有param1，param2...作为key的
-            for (Map.Entry<Integer, String> entry : names.entrySet()) {
-                param.put(entry.getValue(), args[entry.getKey()]);
-                // add generic param names (param1, param2, ...)
-                final String genericParamName = GENERIC_NAME_PREFIX + String.valueOf(i + 1);
-                // ensure not to overwrite parameter named with @Param
-                if (!names.containsValue(genericParamName)) {
-                    param.put(genericParamName, args[entry.getKey()]);
-                }
-                i++;
-            }
-            return param;
+            // 返回map，包含了names作为key，还有param1，param2...作为key的，直接使用args作为存储
+            return new IndexedParamMap<Object>(paramMapKeys, paramMapIndexes, args);
         }
     }
 }
@@ -0,0 +1,351 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 预先解析好的属性路径，如order.customer.address.city、items[0].name
+ * <p>
+ * 路径只解析一次并缓存，每一层记住上一次访问的class及其Invoker，普通的bean和Map直接在对象上逐层访问，
+ * 不再为中间层级创建MetaObject；遇到ObjectWrapper、Collection、自定义ObjectWrapperFactory包装的对象，
+ * 或者需要实例化中间层级时，从当前层级开始回到MetaObject原有的逐层处理，行为与之前一致
+ *
+ * @since 3.4.7
+ */
+public final class PropertyPath {
+
+    // 最多缓存的路径数，超过后不再缓存（如foreach生成的__frch_item_N）
+    private static final int MAX_CACHED_PATHS = 4096;
+    private static final ConcurrentMap<String, PropertyPath> CACHE = new ConcurrentHashMap<String, PropertyPath>();
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+    // 当前层级无法直接访问，需要交给ObjectWrapper
+    private static final Object FALLBACK = new Object();
+
+    private final String name;
+    private final Segment[] segments;
+
+    private PropertyPath(String name) {
+        this.name = name;
+        Segment[] segments = new Segment[1];
+        int size = 0;
+        PropertyTokenizer prop = new PropertyTokenizer(name);
+        while (true) {
+            if (size == segments.length) {
+                Segment[] grown = new Segment[size * 2];
+                System.arraycopy(segments, 0, grown, 0, size);
+                segments = grown;
+            }
+            segments[size++] = new Segment(prop);
+            if (!prop.hasNext()) {
+                break;
+            }
+            prop = prop.next();
+        }
+        this.segments = new Segment[size];
+        System.arraycopy(segments, 0, this.segments, 0, size);
+    }
+
+    /**
+     * 获取name对应的PropertyPath
+     *
+     * @param name
+     * @return
+     */
+    public static PropertyPath forName(String name) {
+        PropertyPath path = CACHE.get(name);
+        if (path == null) {
+            path = new PropertyPath(name);
+            if (CACHE.size() < MAX_CACHED_PATHS) {
+                PropertyPath previous = CACHE.putIfAbsent(name, path);
+                if (previous != null) {
+                    path = previous;
+                }
+            }
+        }
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 第一层的属性名，如items[0].name中的items
+     *
+     * @return
+     */
+    public String getRootName() {
+        return segments[0].name;
+    }
+
+    /**
+     * 获取metaObject上当前路径的值
+     *
+     * @param metaObject
+     * @return
+     */
+    public Object getValue(MetaObject metaObject) {
+        int last = segments.length - 1;
+        Object object = metaObject.getOriginalObject();
+        for (int i = 0; i <= last; i++) {
+            Object value = isPlain(object, metaObject.getObjectWrapperFactory()) ? get(segments[i], object, metaObject.getReflectorFactory()) : FALLBACK;
+            if (value == FALLBACK) {
+                return getValue(metaObjectFor(metaObject, object, i), i);
+            }
+            if (value == null) {
+                return null;
+            }
+            object = value;
+        }
+        return object;
+    }
+
+    /**
+     * 设置metaObject上当前路径的值
+     *
+     * @param metaObject
+     * @param value
+     */
+    public void setValue(MetaObject metaObject, Object value) {
+        int last = segments.length - 1;
+        Object object = metaObject.getOriginalObject();
+        for (int i = 0; i < last; i++) {
+            // 中间层级为null时需要由ObjectWrapper实例化
+            Object child = isPlain(object, metaObject.getObjectWrapperFactory()) ? get(segments[i], object, metaObject.getReflectorFactory()) : FALLBACK;
+            if (child == FALLBACK || child == null) {
+                setValue(metaObjectFor(metaObject, object, i), i, value);
+                return;
+            }
+            object = child;
+        }
+        Segment segment = segments[last];
+        if (segment.index != null || !isPlain(object, metaObject.getObjectWrapperFactory())) {
+            setValue(metaObjectFor(metaObject, object, last), last, value);
+        } else if (object instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) object;
+            map.put(segment.name, value);
+        } else {
+            Invoker setter = segment.setter(object.getClass(), metaObject.getReflectorFactory());
+            if (setter == null) {
+                setValue(metaObjectFor(metaObject, object, last), last, value);
+            } else {
+                invokeSetter(setter, segment.name, object, value);
+            }
+        }
+    }
+
+    /**
+     * 从第from层开始，使用ObjectWrapper逐层获取
+     */
+    private Object getValue(MetaObject metaObject, int from) {
+        int last = segments.length - 1;
+        for (int i = from; i < last; i++) {
+            Object value = metaObject.getObjectWrapper().get(segments[i].head);
+            if (value == null) {
+                return null;
+            }
+            metaObject = MetaObject.forObject(value, metaObject.getObjectFactory(), metaObject.getObjectWrapperFactory(), metaObject.getReflectorFactory());
+        }
+        return metaObject.getObjectWrapper().get(segments[last].head);
+    }
+
+    /**
+     * 从第from层开始，使用ObjectWrapper逐层设置，中间层级为null时实例化
+     */
+    private void setValue(MetaObject metaObject, int from, Object value) {
+        int last = segments.length - 1;
+        for (int i = from; i < last; i++) {
+            Segment segment = segments[i];
+            Object child = metaObject.getObjectWrapper().get(segment.head);
+            if (child == null) {
+                if (value == null) {
+                    // don't instantiate child path if value is null
+                    return;
+                }
+                metaObject = metaObject.getObjectWrapper().instantiatePropertyValue(segment.path, segment.prop, metaObject.getObjectFactory());
+            } else {
+                metaObject = MetaObject.forObject(child, metaObject.getObjectFactory(), metaObject.getObjectWrapperFactory(), metaObject.getReflectorFactory());
+            }
+        }
+        metaObject.getObjectWrapper().set(segments[last].prop, value);
+    }
+
+    private static MetaObject metaObjectFor(MetaObject metaObject, Object object, int i) {
+        if (i == 0) {
+            return metaObject;
+        }
+        return MetaObject.forObject(object, metaObject.getObjectFactory(), metaObject.getObjectWrapperFactory(), metaObject.getReflectorFactory());
+    }
+
+    /**
+     * 与MetaObject选择BeanWrapper或者MapWrapper的条件一致
+     */
+    private static boolean isPlain(Object object, ObjectWrapperFactory objectWrapperFactory) {
+        return !(object instanceof ObjectWrapper) && !(object instanceof Collection) && !objectWrapperFactory.hasWrapperFor(object);
+    }
+
+    /**
+     * 获取bean或者Map在segment处的值，没有对应getter时返回FALLBACK
+     */
+    private static Object get(Segment segment, Object object, ReflectorFactory reflectorFactory) {
+        Object value;
+        if (segment.index != null && segment.name.length() == 0) {
+            value = object;
+        } else if (object instanceof Map) {
+            value = ((Map) object).get(segment.name);
+        } else {
+            Invoker getter = segment.getter(object.getClass(), reflectorFactory);
+            if (getter == null) {
+                return FALLBACK;
+            }
+            value = invokeGetter(getter, segment.name, object);
+        }
+        return segment.index == null ? value : getIndexedValue(segment, value);
+    }
+
+    /**
+     * 同BaseWrapper.getCollectionValue
+     */
+    private static Object getIndexedValue(Segment segment, Object collection) {
+        if (collection instanceof Map) {
+            return ((Map) collection).get(segment.index);
+        }
+        int i = segment.position();
+        if (collection instanceof List) {
+            return ((List) collection).get(i);
+        } else if (collection != null && collection.getClass().isArray()) {
+            return Array.get(collection, i);
+        } else {
+            throw new ReflectionException("The '" + segment.name + "' property of " + collection + " is not a List or Array.");
+        }
+    }
+
+    /**
+     * 同BeanWrapper.getBeanProperty
+     */
+    private static Object invokeGetter(Invoker getter, String name, Object object) {
+        try {
+            return getter.invoke(object, NO_ARGUMENTS);
+        } catch (Throwable t) {
+            Throwable cause = ExceptionUtil.unwrapThrowable(t);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ReflectionException("Could not get property '" + name + "' from " + object.getClass() + ".  Cause: " + cause.toString(), cause);
+        }
+    }
+
+    /**
+     * 同BeanWrapper.setBeanProperty
+     */
+    private static void invokeSetter(Invoker setter, String name, Object object, Object value) {
+        try {
+            setter.invoke(object, new Object[]{value});
+        } catch (Throwable t) {
+            Throwable cause = ExceptionUtil.unwrapThrowable(t);
+            throw new ReflectionException("Could not set property '" + name + "' of '" + object.getClass() + "' with value '" + value + "' Cause: " + cause.toString(), cause);
+        }
+    }
+
+    /**
+     * 路径中的一层，如items[0].name中的items[0]
+     */
+    private static final class Segment {
+        // 从当前层级开始的剩余路径
+        private final String path;
+        // path的PropertyTokenizer
+        private final PropertyTokenizer prop;
+        // 不带children的PropertyTokenizer
+        private final PropertyTokenizer head;
+        private final String name;
+        private final String index;
+        private final boolean numeric;
+        private final int position;
+        // 上一次访问的class对应的getter、setter
+        private volatile Binding getter;
+        private volatile Binding setter;
+
+        Segment(PropertyTokenizer prop) {
+            this.prop = prop;
+            this.path = prop.hasNext() ? prop.getIndexedName() + "." + prop.getChildren() : prop.getIndexedName();
+            this.head = prop.hasNext() ? new PropertyTokenizer(prop.getIndexedName()) : prop;
+            this.name = prop.getName();
+            this.index = prop.getIndex();
+            int position = -1;
+            boolean numeric = false;
+            if (index != null) {
+                try {
+                    position = Integer.parseInt(index);
+                    numeric = true;
+                } catch (NumberFormatException e) {
+                    // 只有List或者数组才需要，到时再抛出
+                }
+            }
+            this.numeric = numeric;
+            this.position = position;
+        }
+
+        int position() {
+            return numeric ? position : Integer.parseInt(index);
+        }
+
+        Invoker getter(Class<?> type, ReflectorFactory reflectorFactory) {
+            Binding binding = getter;
+            if (binding == null || binding.type != type || binding.reflectorFactory != reflectorFactory) {
+                Reflector reflector = reflectorFactory.findForClass(type);
+                binding = new Binding(reflectorFactory, type, reflector.hasGetter(name) ? reflector.getGetInvoker(name) : null);
+                getter = binding;
+            }
+            return binding.invoker;
+        }
+
+        Invoker setter(Class<?> type, ReflectorFactory reflectorFactory) {
+            Binding binding = setter;
+            if (binding == null || binding.type != type || binding.reflectorFactory != reflectorFactory) {
+                Reflector reflector = reflectorFactory.findForClass(type);
+                binding = new Binding(reflectorFactory, type, reflector.hasSetter(name) ? reflector.getSetInvoker(name) : null);
+                setter = binding;
+            }
+            return binding.invoker;
+        }
+    }
+
+    private static final class Binding {
+        private final ReflectorFactory reflectorFactory;
+        private final Class<?> type;
+        private final Invoker invoker;
+
+        Binding(ReflectorFactory reflectorFactory, Class<?> type, Invoker invoker) {
+            this.reflectorFactory = reflectorFactory;
+            this.type = type;
+            this.invoker = invoker;
+        }
+    }
+
+}
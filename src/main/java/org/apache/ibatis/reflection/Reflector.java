@@ -17,6 +17,7 @@ package org.apache.ibatis.reflection;
 
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleInvokers;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
@@ -64,12 +65,24 @@ public class Reflector {
     private final Map<String, Class<?>> getTypes = new HashMap<String, Class<?>>();
     // 默认构造方法
     private Constructor<?> defaultConstructor;
+    // 是否通过MethodHandleInvokers创建invoker
+    private final boolean useMethodHandles;
 
     // key大写的属性集合
     private Map<String, String> caseInsensitivePropertyMap = new HashMap<String, String>();
 
     public Reflector(Class<?> clazz) {
+        this(clazz, false);
+    }
+
+    /**
+     * @param clazz
+     * @param useMethodHandles 为true时get、set方法和field通过LambdaMetafactory或MethodHandle调用，而不是反射
+     * @since 3.4.7
+     */
+    public Reflector(Class<?> clazz, boolean useMethodHandles) {
         type = clazz;
+        this.useMethodHandles = useMethodHandles;
         // 初始化默认构造方法
         addDefaultConstructor(clazz);
 
@@ -188,7 +201,7 @@ public class Reflector {
     private void addGetMethod(String name, Method method) {
         // 过滤合法的property
         if (isValidPropertyName(name)) {
-            getMethods.put(name, new MethodInvoker(method));
+            getMethods.put(name, newMethodInvoker(method));
             Type returnType = TypeParameterResolver.resolveReturnType(method, type);
             getTypes.put(name, typeToClass(returnType));
         }
@@ -276,12 +289,16 @@ public class Reflector {
 
     private void addSetMethod(String name, Method method) {
         if (isValidPropertyName(name)) {
-            setMethods.put(name, new MethodInvoker(method));
+            setMethods.put(name, newMethodInvoker(method));
             Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
             setTypes.put(name, typeToClass(paramTypes[0]));
         }
     }
 
+    private Invoker newMethodInvoker(Method method) {
+        return useMethodHandles ? MethodHandleInvokers.forMethod(method) : new MethodInvoker(method);
+    }
+
     private Class<?> typeToClass(Type src) {
         Class<?> result = null;
         if (src instanceof Class) {
@@ -336,7 +353,7 @@ public class Reflector {
     private void addSetField(Field field) {
         // 过滤合法的property
         if (isValidPropertyName(field.getName())) {
-            setMethods.put(field.getName(), new SetFieldInvoker(field));
+            setMethods.put(field.getName(), useMethodHandles ? MethodHandleInvokers.forSetField(field) : new SetFieldInvoker(field));
             Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
             setTypes.put(field.getName(), typeToClass(fieldType));
         }
@@ -345,7 +362,7 @@ public class Reflector {
     private void addGetField(Field field) {
         // 过滤合法的property
         if (isValidPropertyName(field.getName())) {
-            getMethods.put(field.getName(), new GetFieldInvoker(field));
+            getMethods.put(field.getName(), useMethodHandles ? MethodHandleInvokers.forGetField(field) : new GetFieldInvoker(field));
             Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
             getTypes.put(field.getName(), typeToClass(fieldType));
         }
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import org.apache.ibatis.lang.UsesJava8;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 通过LambdaMetafactory为get、set方法生成Function、BiConsumer的实现类，调用时与直接调用方法相同，可以被JIT内联
+ * <p>
+ * 只用于public类的public方法，并且方法用到的类可以被MyBatis的ClassLoader加载，否则生成的类无法访问
+ */
+@UsesJava8
+public class LambdaMethodInvoker extends MethodInvoker {
+
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    private LambdaMethodInvoker(Method method, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        super(method);
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * 不满足条件或创建失败时返回null
+     *
+     * @param method get或set方法，参数个数为0或1
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    static MethodInvoker create(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())
+                || !Modifier.isPublic(declaringClass.getModifiers()) || parameterTypes.length > 1
+                || !isVisible(declaringClass) || !isVisible(method.getReturnType())
+                || (parameterTypes.length == 1 && !isVisible(parameterTypes[0]))) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle implMethod = lookup.unreflect(method);
+            if (parameterTypes.length == 0) {
+                if (method.getReturnType() == void.class) {
+                    return null;
+                }
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        implMethod,
+                        MethodType.methodType(wrap(method.getReturnType()), declaringClass));
+                return new LambdaMethodInvoker(method, (Function<Object, Object>) site.getTarget().invoke(), null);
+            }
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    implMethod,
+                    MethodType.methodType(void.class, declaringClass, wrap(parameterTypes[0])));
+            return new LambdaMethodInvoker(method, null, (BiConsumer<Object, Object>) site.getTarget().invoke());
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+        try {
+            if (setter != null) {
+                setter.accept(target, args[0]);
+                return null;
+            }
+            return getter.apply(target);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, LambdaMethodInvoker.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
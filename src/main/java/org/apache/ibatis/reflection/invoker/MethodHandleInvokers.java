@@ -0,0 +1,61 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import org.apache.ibatis.reflection.Jdk;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * 创建不通过反射调用的invoker，依次尝试LambdaMetafactory（jdk1.8）、MethodHandle（jdk1.7），都不可用时使用反射
+ * <p>
+ * 返回的invoker仍然是MethodInvoker、GetFieldInvoker、SetFieldInvoker的子类，MetaClass可以照常解析泛型类型
+ */
+public final class MethodHandleInvokers {
+
+    private MethodHandleInvokers() {
+        // Prevent Instantiation
+    }
+
+    public static MethodInvoker forMethod(Method method) {
+        MethodInvoker invoker = null;
+        if (Jdk.lambdaMetafactoryExists) {
+            invoker = LambdaMethodInvoker.create(method);
+        }
+        if (invoker == null && Jdk.methodHandleExists) {
+            invoker = MethodHandleMethodInvoker.create(method);
+        }
+        return invoker != null ? invoker : new MethodInvoker(method);
+    }
+
+    public static GetFieldInvoker forGetField(Field field) {
+        GetFieldInvoker invoker = null;
+        if (Jdk.methodHandleExists) {
+            invoker = MethodHandleGetFieldInvoker.create(field);
+        }
+        return invoker != null ? invoker : new GetFieldInvoker(field);
+    }
+
+    public static SetFieldInvoker forSetField(Field field) {
+        SetFieldInvoker invoker = null;
+        if (Jdk.methodHandleExists) {
+            invoker = MethodHandleSetFieldInvoker.create(field);
+        }
+        return invoker != null ? invoker : new SetFieldInvoker(field);
+    }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import org.apache.ibatis.lang.UsesJava7;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 通过MethodHandle调用get、set方法，调用类型固定为(Object)Object或(Object, Object)Object，避免Method.invoke的参数数组和访问检查
+ */
+@UsesJava7
+public class MethodHandleMethodInvoker extends MethodInvoker {
+
+    private final MethodHandle handle;
+    private final boolean setter;
+
+    private MethodHandleMethodInvoker(Method method, MethodHandle handle, boolean setter) {
+        super(method);
+        this.handle = handle;
+        this.setter = setter;
+    }
+
+    /**
+     * 创建失败（方法不可访问等）时返回null
+     *
+     * @param method get或set方法，参数个数为0或1
+     * @return
+     */
+    static MethodInvoker create(Method method) {
+        int parameterCount = method.getParameterTypes().length;
+        if (parameterCount > 1) {
+            return null;
+        }
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            if (parameterCount == 0) {
+                handle = handle.asType(MethodType.methodType(Object.class, Object.class));
+            } else {
+                handle = handle.asType(MethodType.methodType(Object.class, Object.class, Object.class));
+            }
+            return new MethodHandleMethodInvoker(method, handle, parameterCount == 1);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+        try {
+            if (setter) {
+                return handle.invokeExact(target, args[0]);
+            }
+            return handle.invokeExact(target);
+        } catch (Throwable t) {
+            // 与Method.invoke一致，方法抛出的异常包装为InvocationTargetException
+            throw new InvocationTargetException(t);
+        }
+    }
+}
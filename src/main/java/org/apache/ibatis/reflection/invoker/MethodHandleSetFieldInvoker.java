@@ -0,0 +1,64 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import org.apache.ibatis.lang.UsesJava7;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+/**
+ * 通过MethodHandle写入field，final field无法创建，仍然使用SetFieldInvoker
+ */
+@UsesJava7
+public class MethodHandleSetFieldInvoker extends SetFieldInvoker {
+
+    private final MethodHandle handle;
+
+    private MethodHandleSetFieldInvoker(Field field, MethodHandle handle) {
+        super(field);
+        this.handle = handle;
+    }
+
+    /**
+     * 创建失败时返回null
+     */
+    static SetFieldInvoker create(Field field) {
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflectSetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return new MethodHandleSetFieldInvoker(field, handle.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+        try {
+            handle.invokeExact(target, args[0]);
+            return null;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+}
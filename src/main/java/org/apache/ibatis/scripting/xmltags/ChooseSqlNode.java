@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,7 +20,7 @@ import java.util.List;
 /**
  * @author Clinton Begin
  */
-public class ChooseSqlNode implements SqlNode {
+public class ChooseSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
   private final SqlNode defaultSqlNode;
   private final List<SqlNode> ifSqlNodes;
 
@@ -42,4 +42,34 @@ public class ChooseSqlNode implements SqlNode {
     }
     return false;
   }
+
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    final CompiledSqlNode[] compiledIfSqlNodes = new CompiledSqlNode[ifSqlNodes.size()];
+    for (int i = 0; i < compiledIfSqlNodes.length; i++) {
+      compiledIfSqlNodes[i] = compiler.compile(ifSqlNodes.get(i));
+      if (compiledIfSqlNodes[i] == null) {
+        return null;
+      }
+    }
+    final CompiledSqlNode compiledDefaultSqlNode = defaultSqlNode == null ? null : compiler.compile(defaultSqlNode);
+    if (defaultSqlNode != null && compiledDefaultSqlNode == null) {
+      return null;
+    }
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        for (CompiledSqlNode sqlNode : compiledIfSqlNodes) {
+          if (sqlNode.apply(context)) {
+            return true;
+          }
+        }
+        if (compiledDefaultSqlNode != null) {
+          compiledDefaultSqlNode.apply(context);
+          return true;
+        }
+        return false;
+      }
+    };
+  }
 }
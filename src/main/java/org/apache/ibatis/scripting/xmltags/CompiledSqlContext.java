@@ -0,0 +1,236 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.parsing.TokenHandler;
+import org.apache.ibatis.scripting.xmltags.SqlNodeCompiler.Placeholder;
+
+/**
+ * The state of rendering a {@link CompiledSqlNode} tree.
+ * <p>
+ * SQL is written to a {@link Target}, which stands for the nested {@link DynamicContext}s of the interpreted nodes:
+ * the root adds a space after each text like {@link DynamicContext#appendSql}, trim collects the text to remove
+ * prefixes and suffixes, and foreach adds the separator before the first non blank text of an item.
+ * Placeholders are resolved when they are written, applying the item and index renames of the enclosing foreach nodes.
+ */
+class CompiledSqlContext {
+
+  private static final Object[] NO_PARAMETERS = new Object[0];
+
+  private final DynamicContext dynamicContext;
+  private final SqlSourceBuilder sqlSourceBuilder;
+  private final Class<?> parameterType;
+  private final Target root = new Target(true);
+  private Target target = root;
+  private List<Rename> renames;
+
+  CompiledSqlContext(DynamicContext dynamicContext, SqlSourceBuilder sqlSourceBuilder, Class<?> parameterType) {
+    this.dynamicContext = dynamicContext;
+    this.sqlSourceBuilder = sqlSourceBuilder;
+    this.parameterType = parameterType;
+  }
+
+  DynamicContext getDynamicContext() {
+    return dynamicContext;
+  }
+
+  Map<String, Object> getBindings() {
+    return dynamicContext.getBindings();
+  }
+
+  void bind(String name, Object value) {
+    dynamicContext.bind(name, value);
+  }
+
+  int getUniqueNumber() {
+    return dynamicContext.getUniqueNumber();
+  }
+
+  Target getTarget() {
+    return target;
+  }
+
+  void setTarget(Target target) {
+    this.target = target;
+  }
+
+  void pushRename(Rename rename) {
+    if (renames == null) {
+      renames = new ArrayList<Rename>();
+    }
+    renames.add(rename);
+  }
+
+  void popRename() {
+    renames.remove(renames.size() - 1);
+  }
+
+  void appendSql(String sql, Placeholder[] placeholders) {
+    if (placeholders.length == 0) {
+      target.append(sql, NO_PARAMETERS);
+      return;
+    }
+    Object[] parameters = new Object[placeholders.length];
+    for (int i = 0; i < placeholders.length; i++) {
+      parameters[i] = resolve(placeholders[i]);
+    }
+    target.append(sql, parameters);
+  }
+
+  /*
+   * Appends a text rendered at runtime, which may contain #{} placeholders
+   */
+  void appendText(String text) {
+    if (!SqlNodeCompiler.hasPlaceholder(text)) {
+      appendSql(text, SqlNodeCompiler.NO_PLACEHOLDERS);
+      return;
+    }
+    final List<Placeholder> found = new ArrayList<Placeholder>();
+    String sql = new GenericTokenParser("#{", "}", new TokenHandler() {
+      @Override
+      public String handleToken(String content) {
+        found.add(new Placeholder(content));
+        return "?";
+      }
+    }).parse(text);
+    appendSql(sql, found.toArray(new Placeholder[found.size()]));
+  }
+
+  String getSql() {
+    return root.sql.toString().trim();
+  }
+
+  List<ParameterMapping> getParameterMappings() {
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>(root.parameters.size());
+    for (Object parameter : root.parameters) {
+      if (parameter instanceof ParameterMapping) {
+        parameterMappings.add((ParameterMapping) parameter);
+      } else {
+        // depends on the bindings, as SqlSourceBuilder resolves the type after rendering
+        parameterMappings.add(sqlSourceBuilder.buildParameterMapping((String) parameter, parameterType, getBindings()));
+      }
+    }
+    return parameterMappings;
+  }
+
+  /*
+   * Returns the cached mapping or the renamed placeholder content
+   */
+  private Object resolve(Placeholder placeholder) {
+    String content = placeholder.content;
+    if (renames != null) {
+      for (int i = renames.size() - 1; i >= 0; i--) {
+        content = renames.get(i).apply(content);
+      }
+    }
+    if (placeholder.cacheable && content == placeholder.content) {
+      return placeholder.getParameterMapping(sqlSourceBuilder, parameterType);
+    }
+    return content;
+  }
+
+  /**
+   * Where the SQL of a node goes.
+   */
+  static class Target {
+    final StringBuilder sql = new StringBuilder();
+    final List<Object> parameters = new ArrayList<Object>();
+    private final boolean spaced;
+
+    Target(boolean spaced) {
+      this.spaced = spaced;
+    }
+
+    void append(String text, Object[] textParameters) {
+      sql.append(text);
+      if (spaced) {
+        sql.append(" ");
+      }
+      for (Object parameter : textParameters) {
+        parameters.add(parameter);
+      }
+    }
+  }
+
+  /**
+   * Adds a prefix before the first non blank text, like ForEachSqlNode.PrefixedContext.
+   */
+  static class PrefixedTarget extends Target {
+    private final Target delegate;
+    private final String prefix;
+    private boolean prefixApplied;
+
+    PrefixedTarget(Target delegate, String prefix) {
+      super(false);
+      this.delegate = delegate;
+      this.prefix = prefix;
+    }
+
+    boolean isPrefixApplied() {
+      return prefixApplied;
+    }
+
+    @Override
+    void append(String text, Object[] textParameters) {
+      if (!prefixApplied && text != null && text.trim().length() > 0) {
+        delegate.append(prefix, NO_PARAMETERS);
+        prefixApplied = true;
+      }
+      delegate.append(text, textParameters);
+    }
+  }
+
+  /**
+   * Renames the item and index of a foreach iteration, like ForEachSqlNode.FilteredDynamicContext.
+   */
+  static class Rename {
+    private final Pattern itemPattern;
+    private final String itemizedItem;
+    private final Pattern indexPattern;
+    private final String itemizedIndex;
+
+    Rename(Pattern itemPattern, String itemizedItem, Pattern indexPattern, String itemizedIndex) {
+      this.itemPattern = itemPattern;
+      this.itemizedItem = itemizedItem;
+      this.indexPattern = indexPattern;
+      this.itemizedIndex = itemizedIndex;
+    }
+
+    String apply(String content) {
+      Matcher matcher = itemPattern.matcher(content);
+      if (matcher.find()) {
+        return matcher.replaceFirst(itemizedItem);
+      }
+      if (indexPattern != null) {
+        matcher = indexPattern.matcher(content);
+        if (matcher.find()) {
+          return matcher.replaceFirst(itemizedIndex);
+        }
+      }
+      return content;
+    }
+  }
+
+}
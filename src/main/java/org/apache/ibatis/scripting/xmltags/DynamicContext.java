@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -49,6 +49,7 @@ public class DynamicContext {
     } else {
       bindings = new ContextMap(null);
     }
+    bindings.compileExpressions = configuration.isCompileExpressions();
     bindings.put(PARAMETER_OBJECT_KEY, parameterObject);
     bindings.put(DATABASE_ID_KEY, configuration.getDatabaseId());
   }
@@ -78,10 +79,17 @@ public class DynamicContext {
     private static final long serialVersionUID = 2977601501966151582L;
 
     private MetaObject parameterMetaObject;
+    // whether OgnlCache evaluates the expressions with ExpressionCompiler
+    private boolean compileExpressions;
+
     public ContextMap(MetaObject parameterMetaObject) {
       this.parameterMetaObject = parameterMetaObject;
     }
 
+    boolean isCompileExpressions() {
+      return compileExpressions;
+    }
+
     @Override
     public Object get(Object key) {
       String strKey = (String) key;
@@ -103,8 +111,10 @@ public class DynamicContext {
     @Override
     public Object getProperty(Map context, Object target, Object name)
         throws OgnlException {
-      Map map = (Map) target;
+      return getProperty((Map) target, name);
+    }
 
+    static Object getProperty(Map map, Object name) {
       Object result = map.get(name);
       if (map.containsKey(name) || result != null) {
         return result;
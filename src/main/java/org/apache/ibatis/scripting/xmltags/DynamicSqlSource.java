@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -29,24 +29,79 @@ public class DynamicSqlSource implements SqlSource {
 
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
+  // null when compileDynamicSql is disabled or the tree can not be compiled
+  private final CompiledSqlNode compiledSqlNode;
+  // null when dynamicSqlCacheSize is 0
+  private final SqlSourceCache sqlSourceCache;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.compiledSqlNode = configuration.isCompileDynamicSql() ? SqlNodeCompiler.compile(configuration, rootSqlNode) : null;
+    this.sqlSourceCache = compiledSqlNode == null && configuration.getDynamicSqlCacheSize() > 0
+        ? new SqlSourceCache(configuration.getDynamicSqlCacheSize()) : null;
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
+    if (compiledSqlNode != null) {
+      return getCompiledBoundSql(parameterObject);
+    }
     DynamicContext context = new DynamicContext(configuration, parameterObject);
     rootSqlNode.apply(context);
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
-    BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+    String sql = context.getSql();
+    SqlSource sqlSource = sqlSourceCache == null ? null : sqlSourceCache.get(sql, parameterType, context.getBindings());
+    BoundSql boundSql;
+    if (sqlSource == null) {
+      SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+      sqlSource = sqlSourceParser.parse(sql, parameterType, context.getBindings());
+      boundSql = sqlSource.getBoundSql(parameterObject);
+      if (sqlSourceCache != null) {
+        sqlSourceCache.put(sql, parameterType, context.getBindings(), sqlSource, boundSql.getParameterMappings());
+      }
+    } else {
+      boundSql = sqlSource.getBoundSql(parameterObject);
+    }
     for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
       boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
     }
     return boundSql;
   }
 
+  /**
+   * @since 3.4.7
+   */
+  public long getCacheHitCount() {
+    return sqlSourceCache == null ? 0 : sqlSourceCache.getHitCount();
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public long getCacheMissCount() {
+    return sqlSourceCache == null ? 0 : sqlSourceCache.getMissCount();
+  }
+
+  /**
+   * Whether the parsed SQL is cached, false when dynamicSqlCacheSize is 0 or the statement rendered too many distinct SQL.
+   *
+   * @since 3.4.7
+   */
+  public boolean isCacheEnabled() {
+    return sqlSourceCache != null && sqlSourceCache.isEnabled();
+  }
+
+  private BoundSql getCompiledBoundSql(Object parameterObject) {
+    DynamicContext dynamicContext = new DynamicContext(configuration, parameterObject);
+    Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+    CompiledSqlContext context = new CompiledSqlContext(dynamicContext, new SqlSourceBuilder(configuration), parameterType);
+    compiledSqlNode.apply(context);
+    BoundSql boundSql = new BoundSql(configuration, context.getSql(), context.getParameterMappings(), parameterObject);
+    for (Map.Entry<String, Object> entry : dynamicContext.getBindings().entrySet()) {
+      boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
+    }
+    return boundSql;
+  }
+
 }
@@ -0,0 +1,547 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ognl.OgnlOps;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+
+/**
+ * Compiles the common subset of OGNL used in test, bind and collection expressions into a tree of
+ * {@link CompiledExpression}s that is evaluated against the bindings of a {@link DynamicContext} without OGNL.
+ * <p>
+ * The subset is property paths, null, boolean, number and string literals, ==, !=, &lt;, &gt;, &lt;=, &gt;= (and their
+ * eq, neq, lt, gt, lte, gte forms), and, or, not (&amp;&amp;, ||, !), parentheses, size() and isEmpty().
+ * Comparisons and boolean conversions use {@link OgnlOps} so the results are the same as OGNL.
+ * <p>
+ * An expression that can not be compiled, and an evaluation that reaches a case the compiled expression does not
+ * handle in the same way as OGNL (e.g. a property of a null value, or a property named size of a map), are left to OGNL.
+ */
+final class ExpressionCompiler {
+
+  // returned by an evaluation that must be done by OGNL
+  static final Object UNSUPPORTED = new Object();
+
+  private static final CompiledExpression NOT_COMPILABLE = new CompiledExpression() {
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      return UNSUPPORTED;
+    }
+  };
+
+  private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList("and", "or", "not", "eq", "neq", "lt",
+      "gt", "lte", "gte", "null", "true", "false", "in", "instanceof", "new", "shl", "shr", "ushr", "band", "bor", "xor"));
+
+  // the special property names of OGNL's map and collection accessors
+  private static final Set<String> MAP_PROPERTIES = new HashSet<String>(Arrays.asList("size", "keys", "keySet", "values", "isEmpty"));
+
+  private static final Map<String, CompiledExpression> expressionCache = new ConcurrentHashMap<String, CompiledExpression>();
+
+  private static final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+
+  // returned by peek at the end, not a part of any token ('\0' is an identifier part)
+  private static final char END = '\uFFFF';
+
+  private final String expression;
+  private int position;
+
+  private ExpressionCompiler(String expression) {
+    this.expression = expression;
+  }
+
+  /*
+   * Returns the compiled expression, or null if it must be evaluated by OGNL
+   */
+  static CompiledExpression compile(String expression) {
+    CompiledExpression compiled = expressionCache.get(expression);
+    if (compiled == null) {
+      compiled = new ExpressionCompiler(expression).compile();
+      expressionCache.put(expression, compiled);
+    }
+    return compiled == NOT_COMPILABLE ? null : compiled;
+  }
+
+  private CompiledExpression compile() {
+    try {
+      CompiledExpression compiled = parseOr();
+      skipWhitespace();
+      return position == expression.length() ? compiled : NOT_COMPILABLE;
+    } catch (UnsupportedSyntaxException e) {
+      return NOT_COMPILABLE;
+    }
+  }
+
+  private CompiledExpression parseOr() {
+    List<CompiledExpression> operands = new ArrayList<CompiledExpression>();
+    operands.add(parseAnd());
+    while (accept("||") || acceptKeyword("or")) {
+      operands.add(parseAnd());
+    }
+    return operands.size() == 1 ? operands.get(0) : new Or(operands);
+  }
+
+  private CompiledExpression parseAnd() {
+    List<CompiledExpression> operands = new ArrayList<CompiledExpression>();
+    operands.add(parseEquality());
+    while (accept("&&") || acceptKeyword("and")) {
+      operands.add(parseEquality());
+    }
+    return operands.size() == 1 ? operands.get(0) : new And(operands);
+  }
+
+  private CompiledExpression parseEquality() {
+    CompiledExpression left = parseRelational();
+    while (true) {
+      if (accept("==") || acceptKeyword("eq")) {
+        left = new Comparison(Comparison.EQ, left, parseRelational());
+      } else if (accept("!=") || acceptKeyword("neq")) {
+        left = new Comparison(Comparison.NEQ, left, parseRelational());
+      } else {
+        return left;
+      }
+    }
+  }
+
+  private CompiledExpression parseRelational() {
+    CompiledExpression left = parseUnary();
+    while (true) {
+      if (accept("<=") || acceptKeyword("lte")) {
+        left = new Comparison(Comparison.LTE, left, parseUnary());
+      } else if (accept(">=") || acceptKeyword("gte")) {
+        left = new Comparison(Comparison.GTE, left, parseUnary());
+      } else if (accept("<") || acceptKeyword("lt")) {
+        left = new Comparison(Comparison.LT, left, parseUnary());
+      } else if (accept(">") || acceptKeyword("gt")) {
+        left = new Comparison(Comparison.GT, left, parseUnary());
+      } else {
+        return left;
+      }
+    }
+  }
+
+  private CompiledExpression parseUnary() {
+    skipWhitespace();
+    if (peek() == '!' && peek(1) != '=') {
+      position++;
+      return new Not(parseUnary());
+    }
+    if (acceptKeyword("not")) {
+      return new Not(parseUnary());
+    }
+    if (peek() == '-' && Character.isDigit(peek(1))) {
+      position++;
+      return parseNumber(true);
+    }
+    return parsePrimary();
+  }
+
+  private CompiledExpression parsePrimary() {
+    skipWhitespace();
+    char c = peek();
+    if (c == '(') {
+      position++;
+      CompiledExpression compiled = parseOr();
+      expect(")");
+      return compiled;
+    }
+    if (Character.isDigit(c)) {
+      return parseNumber(false);
+    }
+    if (c == '\'' || c == '"') {
+      return parseString(c);
+    }
+    if (Character.isJavaIdentifierStart(c)) {
+      String identifier = parseIdentifier();
+      if ("null".equals(identifier)) {
+        return new Literal(null);
+      } else if ("true".equals(identifier)) {
+        return new Literal(Boolean.TRUE);
+      } else if ("false".equals(identifier)) {
+        return new Literal(Boolean.FALSE);
+      } else if (KEYWORDS.contains(identifier)) {
+        throw new UnsupportedSyntaxException();
+      }
+      return parsePath(identifier);
+    }
+    throw new UnsupportedSyntaxException();
+  }
+
+  private CompiledExpression parsePath(String root) {
+    List<String> properties = new ArrayList<String>();
+    properties.add(root);
+    while (peek() == '.') {
+      position++;
+      if (!Character.isJavaIdentifierStart(peek())) {
+        throw new UnsupportedSyntaxException();
+      }
+      String property = parseIdentifier();
+      if (peek() == '(') {
+        if (!accept("()")) {
+          throw new UnsupportedSyntaxException();
+        }
+        CompiledExpression target = new Path(properties.toArray(new String[properties.size()]));
+        if ("size".equals(property)) {
+          return new Size(target);
+        } else if ("isEmpty".equals(property)) {
+          return new IsEmpty(target);
+        }
+        throw new UnsupportedSyntaxException();
+      }
+      properties.add(property);
+    }
+    if (peek() == '(' || peek() == '[') {
+      throw new UnsupportedSyntaxException();
+    }
+    return new Path(properties.toArray(new String[properties.size()]));
+  }
+
+  private CompiledExpression parseNumber(boolean negative) {
+    int start = position;
+    while (Character.isDigit(peek())) {
+      position++;
+    }
+    boolean decimal = false;
+    if (peek() == '.' && Character.isDigit(peek(1))) {
+      decimal = true;
+      position++;
+      while (Character.isDigit(peek())) {
+        position++;
+      }
+    }
+    // leading zeros are octal, suffixes and exponents select other types in OGNL
+    if (Character.isJavaIdentifierPart(peek()) || peek() == '.' || (!decimal && expression.charAt(start) == '0' && position - start > 1)) {
+      throw new UnsupportedSyntaxException();
+    }
+    String text = (negative ? "-" : "") + expression.substring(start, position);
+    try {
+      return new Literal(decimal ? (Object) Double.valueOf(text) : (Object) Integer.valueOf(text));
+    } catch (NumberFormatException e) {
+      throw new UnsupportedSyntaxException();
+    }
+  }
+
+  private CompiledExpression parseString(char quote) {
+    int start = ++position;
+    while (position < expression.length() && expression.charAt(position) != quote) {
+      if (expression.charAt(position) == '\\') {
+        throw new UnsupportedSyntaxException();
+      }
+      position++;
+    }
+    if (position == expression.length()) {
+      throw new UnsupportedSyntaxException();
+    }
+    String value = expression.substring(start, position++);
+    if (quote == '\'' && value.length() == 1) {
+      // a character literal in OGNL
+      throw new UnsupportedSyntaxException();
+    }
+    return new Literal(value);
+  }
+
+  private String parseIdentifier() {
+    int start = position++;
+    while (Character.isJavaIdentifierPart(peek())) {
+      position++;
+    }
+    return expression.substring(start, position);
+  }
+
+  private boolean accept(String token) {
+    skipWhitespace();
+    if (expression.startsWith(token, position)) {
+      position += token.length();
+      return true;
+    }
+    return false;
+  }
+
+  private boolean acceptKeyword(String keyword) {
+    skipWhitespace();
+    int end = position + keyword.length();
+    if (expression.startsWith(keyword, position) && (end == expression.length() || !Character.isJavaIdentifierPart(expression.charAt(end)))) {
+      position = end;
+      return true;
+    }
+    return false;
+  }
+
+  private void expect(String token) {
+    if (!accept(token)) {
+      throw new UnsupportedSyntaxException();
+    }
+  }
+
+  private void skipWhitespace() {
+    while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+      position++;
+    }
+  }
+
+  private char peek() {
+    return peek(0);
+  }
+
+  private char peek(int offset) {
+    int index = position + offset;
+    return index < expression.length() ? expression.charAt(index) : END;
+  }
+
+  /**
+   * A compiled expression, returns {@link ExpressionCompiler#UNSUPPORTED} when OGNL must evaluate it.
+   */
+  abstract static class CompiledExpression {
+    abstract Object getValue(Map<String, Object> bindings);
+  }
+
+  private static class UnsupportedSyntaxException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedSyntaxException() {
+      super();
+    }
+  }
+
+  private static final class Literal extends CompiledExpression {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      return value;
+    }
+  }
+
+  private static final class Path extends CompiledExpression {
+    private final String[] properties;
+
+    Path(String[] properties) {
+      this.properties = properties;
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      // the first property is resolved like DynamicContext.ContextAccessor
+      Object value = DynamicContext.ContextAccessor.getProperty(bindings, properties[0]);
+      for (int i = 1; i < properties.length; i++) {
+        value = getProperty(value, properties[i]);
+        if (value == UNSUPPORTED) {
+          return UNSUPPORTED;
+        }
+      }
+      return value;
+    }
+
+    private static Object getProperty(Object target, String name) {
+      if (target == null) {
+        return UNSUPPORTED;
+      }
+      if (target instanceof Map) {
+        return MAP_PROPERTIES.contains(name) ? UNSUPPORTED : ((Map<?, ?>) target).get(name);
+      }
+      if (target instanceof Collection || target.getClass().isArray() || target instanceof Class) {
+        return UNSUPPORTED;
+      }
+      Reflector reflector = reflectorFactory.findForClass(target.getClass());
+      if (!reflector.hasGetter(name)) {
+        return UNSUPPORTED;
+      }
+      Invoker invoker = reflector.getGetInvoker(name);
+      if (!(invoker instanceof MethodInvoker)) {
+        // OGNL reads only public fields
+        return UNSUPPORTED;
+      }
+      try {
+        return invoker.invoke(target, null);
+      } catch (Exception e) {
+        return UNSUPPORTED;
+      }
+    }
+  }
+
+  private static final class Size extends CompiledExpression {
+    private final CompiledExpression target;
+
+    Size(CompiledExpression target) {
+      this.target = target;
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      Object value = target.getValue(bindings);
+      if (value instanceof Collection) {
+        return ((Collection<?>) value).size();
+      } else if (value instanceof Map) {
+        return ((Map<?, ?>) value).size();
+      }
+      return UNSUPPORTED;
+    }
+  }
+
+  private static final class IsEmpty extends CompiledExpression {
+    private final CompiledExpression target;
+
+    IsEmpty(CompiledExpression target) {
+      this.target = target;
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      Object value = target.getValue(bindings);
+      if (value instanceof Collection) {
+        return ((Collection<?>) value).isEmpty();
+      } else if (value instanceof Map) {
+        return ((Map<?, ?>) value).isEmpty();
+      } else if (value instanceof String) {
+        return ((String) value).length() == 0;
+      }
+      return UNSUPPORTED;
+    }
+  }
+
+  private static final class Not extends CompiledExpression {
+    private final CompiledExpression operand;
+
+    Not(CompiledExpression operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      Object value = operand.getValue(bindings);
+      if (value == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      return OgnlOps.booleanValue(value) ? Boolean.FALSE : Boolean.TRUE;
+    }
+  }
+
+  /**
+   * Returns the first operand that is false, or the last one, like OGNL.
+   */
+  private static final class And extends CompiledExpression {
+    private final CompiledExpression[] operands;
+
+    And(List<CompiledExpression> operands) {
+      this.operands = operands.toArray(new CompiledExpression[operands.size()]);
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      Object value = null;
+      for (CompiledExpression operand : operands) {
+        value = operand.getValue(bindings);
+        if (value == UNSUPPORTED || !OgnlOps.booleanValue(value)) {
+          return value;
+        }
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Returns the first operand that is true, or the last one, like OGNL.
+   */
+  private static final class Or extends CompiledExpression {
+    private final CompiledExpression[] operands;
+
+    Or(List<CompiledExpression> operands) {
+      this.operands = operands.toArray(new CompiledExpression[operands.size()]);
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      Object value = null;
+      for (CompiledExpression operand : operands) {
+        value = operand.getValue(bindings);
+        if (value == UNSUPPORTED || OgnlOps.booleanValue(value)) {
+          return value;
+        }
+      }
+      return value;
+    }
+  }
+
+  private static final class Comparison extends CompiledExpression {
+    static final int EQ = 0;
+    static final int NEQ = 1;
+    static final int LT = 2;
+    static final int GT = 3;
+    static final int LTE = 4;
+    static final int GTE = 5;
+
+    private final int operator;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    Comparison(int operator, CompiledExpression left, CompiledExpression right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object getValue(Map<String, Object> bindings) {
+      Object leftValue = left.getValue(bindings);
+      if (leftValue == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      Object rightValue = right.getValue(bindings);
+      if (rightValue == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      boolean result;
+      switch (operator) {
+        case EQ:
+          result = OgnlOps.equal(leftValue, rightValue);
+          break;
+        case NEQ:
+          result = !OgnlOps.equal(leftValue, rightValue);
+          break;
+        case LT:
+          result = OgnlOps.less(leftValue, rightValue);
+          break;
+        case GT:
+          result = OgnlOps.greater(leftValue, rightValue);
+          break;
+        case LTE:
+          result = !OgnlOps.greater(leftValue, rightValue);
+          break;
+        default:
+          result = !OgnlOps.less(leftValue, rightValue);
+          break;
+      }
+      return result ? Boolean.TRUE : Boolean.FALSE;
+    }
+  }
+
+}
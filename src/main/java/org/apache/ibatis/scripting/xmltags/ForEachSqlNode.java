@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 package org.apache.ibatis.scripting.xmltags;
 
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
@@ -24,7 +25,7 @@ import org.apache.ibatis.session.Configuration;
 /**
  * @author Clinton Begin
  */
-public class ForEachSqlNode implements SqlNode {
+public class ForEachSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
   public static final String ITEM_PREFIX = "__frch_";
 
   private final ExpressionEvaluator evaluator;
@@ -90,6 +91,80 @@ public class ForEachSqlNode implements SqlNode {
     return true;
   }
 
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    if (SqlNodeCompiler.hasPlaceholder(open) || SqlNodeCompiler.hasPlaceholder(close) || SqlNodeCompiler.hasPlaceholder(separator)) {
+      return null;
+    }
+    final CompiledSqlNode compiledContents = compiler.compile(contents);
+    if (compiledContents == null) {
+      return null;
+    }
+    if (item != null) {
+      compiler.addBoundName(item);
+    }
+    if (index != null) {
+      compiler.addBoundName(index);
+    }
+    final Pattern itemPattern = Pattern.compile(itemPattern(item));
+    final Pattern indexPattern = index == null ? null : Pattern.compile(itemPattern(index));
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        Map<String, Object> bindings = context.getBindings();
+        final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+        if (!iterable.iterator().hasNext()) {
+          return true;
+        }
+        boolean first = true;
+        if (open != null) {
+          context.getTarget().append(open, new Object[0]);
+        }
+        int i = 0;
+        for (Object o : iterable) {
+          CompiledSqlContext.Target oldTarget = context.getTarget();
+          CompiledSqlContext.PrefixedTarget target = new CompiledSqlContext.PrefixedTarget(oldTarget, first || separator == null ? "" : separator);
+          context.setTarget(target);
+          int uniqueNumber = context.getUniqueNumber();
+          Object indexValue = i;
+          Object itemValue = o;
+          if (o instanceof Map.Entry) {
+            @SuppressWarnings("unchecked")
+            Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
+            indexValue = mapEntry.getKey();
+            itemValue = mapEntry.getValue();
+          }
+          if (index != null) {
+            context.bind(index, indexValue);
+            context.bind(itemizeItem(index, uniqueNumber), indexValue);
+          }
+          if (item != null) {
+            context.bind(item, itemValue);
+            context.bind(itemizeItem(item, uniqueNumber), itemValue);
+          }
+          context.pushRename(new CompiledSqlContext.Rename(itemPattern, itemizeItem(item, uniqueNumber),
+              indexPattern, index == null ? null : itemizeItem(index, uniqueNumber)));
+          try {
+            compiledContents.apply(context);
+          } finally {
+            context.popRename();
+            context.setTarget(oldTarget);
+          }
+          if (first) {
+            first = !target.isPrefixApplied();
+          }
+          i++;
+        }
+        if (close != null) {
+          context.getTarget().append(close, new Object[0]);
+        }
+        bindings.remove(item);
+        bindings.remove(index);
+        return true;
+      }
+    };
+  }
+
   private void applyIndex(DynamicContext context, Object o, int i) {
     if (index != null) {
       context.bind(index, o);
@@ -116,6 +191,10 @@ public class ForEachSqlNode implements SqlNode {
     }
   }
 
+  private static String itemPattern(String item) {
+    return "^\\s*" + item + "(?![^.,:\\s])";
+  }
+
   private static String itemizeItem(String item, int i) {
     return new StringBuilder(ITEM_PREFIX).append(item).append("_").append(i).toString();
   }
@@ -154,9 +233,9 @@ public class ForEachSqlNode implements SqlNode {
       GenericTokenParser parser = new GenericTokenParser("#{", "}", new TokenHandler() {
         @Override
         public String handleToken(String content) {
-          String newContent = content.replaceFirst("^\\s*" + item + "(?![^.,:\\s])", itemizeItem(item, index));
+          String newContent = content.replaceFirst(itemPattern(item), itemizeItem(item, index));
           if (itemIndex != null && newContent.equals(content)) {
-            newContent = content.replaceFirst("^\\s*" + itemIndex + "(?![^.,:\\s])", itemizeItem(itemIndex, index));
+            newContent = content.replaceFirst(itemPattern(itemIndex), itemizeItem(itemIndex, index));
           }
           return new StringBuilder("#{").append(newContent).append("}").toString();
         }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,7 +18,7 @@ package org.apache.ibatis.scripting.xmltags;
 /**
  * @author Clinton Begin
  */
-public class IfSqlNode implements SqlNode {
+public class IfSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
   private final ExpressionEvaluator evaluator;
   private final String test;
   private final SqlNode contents;
@@ -38,4 +38,22 @@ public class IfSqlNode implements SqlNode {
     return false;
   }
 
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    final CompiledSqlNode compiledContents = compiler.compile(contents);
+    if (compiledContents == null) {
+      return null;
+    }
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        if (evaluator.evaluateBoolean(test, context.getBindings())) {
+          compiledContents.apply(context);
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
 }
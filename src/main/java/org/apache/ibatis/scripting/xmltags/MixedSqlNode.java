@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,7 +20,7 @@ import java.util.List;
 /**
  * @author Clinton Begin
  */
-public class MixedSqlNode implements SqlNode {
+public class MixedSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
   private final List<SqlNode> contents;
 
   public MixedSqlNode(List<SqlNode> contents) {
@@ -34,4 +34,24 @@ public class MixedSqlNode implements SqlNode {
     }
     return true;
   }
+
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    final CompiledSqlNode[] compiledContents = new CompiledSqlNode[contents.size()];
+    for (int i = 0; i < compiledContents.length; i++) {
+      compiledContents[i] = compiler.compile(contents.get(i));
+      if (compiledContents[i] == null) {
+        return null;
+      }
+    }
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        for (CompiledSqlNode sqlNode : compiledContents) {
+          sqlNode.apply(context);
+        }
+        return true;
+      }
+    };
+  }
 }
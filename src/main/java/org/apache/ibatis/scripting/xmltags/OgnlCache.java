@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -39,6 +39,19 @@ public final class OgnlCache {
   }
 
   public static Object getValue(String expression, Object root) {
+    if (root instanceof DynamicContext.ContextMap && ((DynamicContext.ContextMap) root).isCompileExpressions()) {
+      ExpressionCompiler.CompiledExpression compiled = ExpressionCompiler.compile(expression);
+      if (compiled != null) {
+        try {
+          Object value = compiled.getValue((DynamicContext.ContextMap) root);
+          if (value != ExpressionCompiler.UNSUPPORTED) {
+            return value;
+          }
+        } catch (RuntimeException e) {
+          // evaluated again by OGNL, which reports the error
+        }
+      }
+    }
     try {
       Map<Object, OgnlClassResolver> context = Ognl.createDefaultContext(root, new OgnlClassResolver());
       return Ognl.getValue(parseExpression(expression), context, root);
@@ -0,0 +1,176 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.builder.ParameterExpression;
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.parsing.TokenHandler;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Compiles a tree of the built-in {@link SqlNode}s into a tree of closures ({@link CompiledSqlNode}).
+ * <p>
+ * The #{} placeholders of static text are found once here instead of parsing the rendered SQL on every call,
+ * and the {@link ParameterMapping} of a placeholder is built once per parameter type unless its property
+ * may be bound while rendering (_parameter, bind, foreach item and index).
+ * <p>
+ * Returns null when the tree can not be compiled, e.g. it contains a custom SqlNode.
+ */
+final class SqlNodeCompiler {
+
+  static final Placeholder[] NO_PLACEHOLDERS = new Placeholder[0];
+
+  private final Configuration configuration;
+  // names that can be found in the bindings of DynamicContext
+  private final Set<String> boundNames = new HashSet<String>();
+  private final List<Placeholder> placeholders = new ArrayList<Placeholder>();
+
+  private SqlNodeCompiler(Configuration configuration) {
+    this.configuration = configuration;
+    boundNames.add(DynamicContext.PARAMETER_OBJECT_KEY);
+    boundNames.add(DynamicContext.DATABASE_ID_KEY);
+    // bound by TextSqlNode
+    boundNames.add("value");
+  }
+
+  static CompiledSqlNode compile(Configuration configuration, SqlNode rootSqlNode) {
+    SqlNodeCompiler compiler = new SqlNodeCompiler(configuration);
+    CompiledSqlNode compiled = compiler.compile(rootSqlNode);
+    if (compiled != null) {
+      for (Placeholder placeholder : compiler.placeholders) {
+        placeholder.cacheable = placeholder.property != null && !compiler.boundNames.contains(placeholder.root());
+      }
+    }
+    return compiled;
+  }
+
+  CompiledSqlNode compile(SqlNode sqlNode) {
+    if (sqlNode instanceof Compilable) {
+      return ((Compilable) sqlNode).compile(this);
+    }
+    return null;
+  }
+
+  void addBoundName(String name) {
+    boundNames.add(name);
+  }
+
+  /*
+   * Replaces the #{} placeholders of a static text with ?, returns null if the text uses escapes
+   */
+  StaticText parseStaticText(String text) {
+    if (text.indexOf('\\') >= 0 && text.contains("#{")) {
+      return null;
+    }
+    final List<Placeholder> found = new ArrayList<Placeholder>();
+    String sql = new GenericTokenParser("#{", "}", new TokenHandler() {
+      @Override
+      public String handleToken(String content) {
+        found.add(new Placeholder(content));
+        return "?";
+      }
+    }).parse(text);
+    placeholders.addAll(found);
+    return new StaticText(sql, found.isEmpty() ? NO_PLACEHOLDERS : found.toArray(new Placeholder[found.size()]));
+  }
+
+  /*
+   * Whether a text that is appended as is would be parsed for placeholders by the DynamicSqlSource
+   */
+  static boolean hasPlaceholder(String text) {
+    return text != null && text.contains("#{");
+  }
+
+  Configuration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Implemented by the SqlNodes that can be compiled.
+   */
+  interface Compilable {
+    CompiledSqlNode compile(SqlNodeCompiler compiler);
+  }
+
+  static final class StaticText {
+    final String sql;
+    final Placeholder[] placeholders;
+
+    StaticText(String sql, Placeholder[] placeholders) {
+      this.sql = sql;
+      this.placeholders = placeholders;
+    }
+  }
+
+  /**
+   * A #{} placeholder, holding the mapping built for each parameter type when it does not depend on the bindings.
+   */
+  static final class Placeholder {
+    private static final Map<String, Object> NO_BINDINGS = Collections.emptyMap();
+
+    final String content;
+    final String property;
+    boolean cacheable;
+    private final ConcurrentMap<Class<?>, ParameterMapping> mappings = new ConcurrentHashMap<Class<?>, ParameterMapping>();
+
+    Placeholder(String content) {
+      this.content = content;
+      this.property = parseProperty(content);
+    }
+
+    ParameterMapping getParameterMapping(SqlSourceBuilder builder, Class<?> parameterType) {
+      ParameterMapping mapping = mappings.get(parameterType);
+      if (mapping == null) {
+        mapping = builder.buildParameterMapping(content, parameterType, NO_BINDINGS);
+        mappings.put(parameterType, mapping);
+      }
+      return mapping;
+    }
+
+    String root() {
+      int end = property.length();
+      for (int i = 0; i < property.length(); i++) {
+        char c = property.charAt(i);
+        if (c == '.' || c == '[') {
+          end = i;
+          break;
+        }
+      }
+      return property.substring(0, end);
+    }
+
+    private static String parseProperty(String content) {
+      try {
+        return new ParameterExpression(content).get("property");
+      } catch (RuntimeException e) {
+        // reported when the mapping is built
+        return null;
+      }
+    }
+  }
+
+}
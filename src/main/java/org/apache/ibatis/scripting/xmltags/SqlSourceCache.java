@@ -0,0 +1,179 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+
+/**
+ * Caches the {@link SqlSource} parsed from each distinct SQL rendered by a {@link DynamicSqlSource}.
+ * <p>
+ * A placeholder whose property is found in the bindings (bind, foreach item and index) gets its type from the
+ * bound value, so an entry also records the class of those values and is only used when they are the same.
+ * <p>
+ * When the cache is full it is cleared, unless there were more misses than hits, which means the statement renders
+ * too many distinct SQL (e.g. ${} substitutions); the cache is then disabled for the statement.
+ */
+final class SqlSourceCache {
+
+  private static final Log log = LogFactory.getLog(SqlSourceCache.class);
+
+  // a root that is not bound gets its type from the parameter object
+  private static final Object UNBOUND = new Object();
+  private static final Object NULL = new Object();
+
+  private final int maxSize;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private volatile boolean enabled = true;
+
+  SqlSourceCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  SqlSource get(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+    if (!enabled) {
+      return null;
+    }
+    Entry entry = entries.get(sql);
+    if (entry != null && entry.parameterType == parameterType && entry.matches(bindings)) {
+      hitCount.incrementAndGet();
+      return entry.sqlSource;
+    }
+    missCount.incrementAndGet();
+    return null;
+  }
+
+  void put(String sql, Class<?> parameterType, Map<String, Object> bindings, SqlSource sqlSource, List<ParameterMapping> parameterMappings) {
+    if (!enabled) {
+      return;
+    }
+    Entry entry = Entry.create(parameterType, bindings, sqlSource, parameterMappings);
+    if (entry == null) {
+      return;
+    }
+    if (entries.size() >= maxSize && !entries.containsKey(sql)) {
+      if (missCount.get() > hitCount.get()) {
+        enabled = false;
+        entries.clear();
+        if (log.isDebugEnabled()) {
+          log.debug("Disabled the SQL source cache of a statement that rendered more than " + maxSize + " distinct SQL: " + sql);
+        }
+        return;
+      }
+      entries.clear();
+    }
+    entries.put(sql, entry);
+  }
+
+  long getHitCount() {
+    return hitCount.get();
+  }
+
+  long getMissCount() {
+    return missCount.get();
+  }
+
+  int getSize() {
+    return entries.size();
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  private static final class Entry {
+    private final Class<?> parameterType;
+    private final SqlSource sqlSource;
+    private final String[] roots;
+    private final Object[] classes;
+
+    private Entry(Class<?> parameterType, SqlSource sqlSource, String[] roots, Object[] classes) {
+      this.parameterType = parameterType;
+      this.sqlSource = sqlSource;
+      this.roots = roots;
+      this.classes = classes;
+    }
+
+    /*
+     * Returns null if the type of a placeholder depends on more than the class of a bound value
+     */
+    static Entry create(Class<?> parameterType, Map<String, Object> bindings, SqlSource sqlSource, List<ParameterMapping> parameterMappings) {
+      List<String> roots = new ArrayList<String>();
+      List<Object> classes = new ArrayList<Object>();
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        String property = parameterMapping.getProperty();
+        if (property == null) {
+          continue;
+        }
+        String root = root(property);
+        if (roots.contains(root)) {
+          continue;
+        }
+        if (root.length() < property.length() && bindings.containsKey(root)) {
+          // the type of a nested property of a map or of a deeper path depends on the values
+          Object value = bindings.get(root);
+          String children = property.substring(root.length() + 1);
+          if (value instanceof Map || value instanceof Collection || !root(children).equals(children)) {
+            return null;
+          }
+        }
+        roots.add(root);
+        classes.add(classOf(bindings, root));
+      }
+      return new Entry(parameterType, sqlSource, roots.toArray(new String[roots.size()]), classes.toArray());
+    }
+
+    boolean matches(Map<String, Object> bindings) {
+      for (int i = 0; i < roots.length; i++) {
+        if (classes[i] != classOf(bindings, roots[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static Object classOf(Map<String, Object> bindings, String root) {
+      if (!bindings.containsKey(root)) {
+        return UNBOUND;
+      }
+      Object value = bindings.get(root);
+      return value == null ? NULL : value.getClass();
+    }
+
+    private static String root(String property) {
+      for (int i = 0; i < property.length(); i++) {
+        char c = property.charAt(i);
+        if (c == '.' || c == '[') {
+          return property.substring(0, i);
+        }
+      }
+      return property;
+    }
+  }
+
+}
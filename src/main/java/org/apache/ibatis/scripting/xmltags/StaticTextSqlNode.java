@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,7 +18,7 @@ package org.apache.ibatis.scripting.xmltags;
 /**
  * @author Clinton Begin
  */
-public class StaticTextSqlNode implements SqlNode {
+public class StaticTextSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
   private final String text;
 
   public StaticTextSqlNode(String text) {
@@ -31,4 +31,19 @@ public class StaticTextSqlNode implements SqlNode {
     return true;
   }
 
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    final SqlNodeCompiler.StaticText staticText = compiler.parseStaticText(text);
+    if (staticText == null) {
+      return null;
+    }
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        context.appendSql(staticText.sql, staticText.placeholders);
+        return true;
+      }
+    };
+  }
+
 }
\ No newline at end of file
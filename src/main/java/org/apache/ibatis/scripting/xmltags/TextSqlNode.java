@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -25,7 +25,7 @@ import org.apache.ibatis.type.SimpleTypeRegistry;
 /**
  * @author Clinton Begin
  */
-public class TextSqlNode implements SqlNode {
+public class TextSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
   private final String text;
   private final Pattern injectionFilter;
 
@@ -51,6 +51,18 @@ public class TextSqlNode implements SqlNode {
     context.appendSql(parser.parse(text));
     return true;
   }
+
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        GenericTokenParser parser = createParser(new BindingTokenParser(context.getDynamicContext(), injectionFilter));
+        context.appendText(parser.parse(text));
+        return true;
+      }
+    };
+  }
   
   private GenericTokenParser createParser(TokenHandler handler) {
     return new GenericTokenParser("${", "}", handler);
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -27,7 +27,7 @@ import org.apache.ibatis.session.Configuration;
 /**
  * @author Clinton Begin
  */
-public class TrimSqlNode implements SqlNode {
+public class TrimSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
 
   private final SqlNode contents;
   private final String prefix;
@@ -57,6 +57,90 @@ public class TrimSqlNode implements SqlNode {
     return result;
   }
 
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    if (SqlNodeCompiler.hasPlaceholder(prefix) || SqlNodeCompiler.hasPlaceholder(suffix)
+        || !canOverride(prefixesToOverride) || !canOverride(suffixesToOverride)) {
+      return null;
+    }
+    final CompiledSqlNode compiledContents = compiler.compile(contents);
+    if (compiledContents == null) {
+      return null;
+    }
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        CompiledSqlContext.Target parent = context.getTarget();
+        CompiledSqlContext.Target buffer = new CompiledSqlContext.Target(false);
+        context.setTarget(buffer);
+        boolean result;
+        try {
+          result = compiledContents.apply(context);
+        } finally {
+          context.setTarget(parent);
+        }
+        parent.append(applyTrim(buffer.sql.toString()), buffer.parameters.toArray());
+        return result;
+      }
+    };
+  }
+
+  /*
+   * The compiled contents have ? instead of #{}, an override that may match a placeholder would trim differently
+   */
+  private static boolean canOverride(List<String> overrides) {
+    if (overrides != null) {
+      for (String override : overrides) {
+        if (override.indexOf('?') >= 0 || override.indexOf('}') >= 0 || override.indexOf('{') >= 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private String applyTrim(String sql) {
+    StringBuilder sqlBuffer = new StringBuilder(sql.trim());
+    String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
+    if (trimmedUppercaseSql.length() > 0) {
+      applyPrefix(sqlBuffer, trimmedUppercaseSql);
+      applySuffix(sqlBuffer, trimmedUppercaseSql);
+    }
+    return sqlBuffer.toString();
+  }
+
+  private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
+    if (prefixesToOverride != null) {
+      for (String toRemove : prefixesToOverride) {
+        if (trimmedUppercaseSql.startsWith(toRemove)) {
+          sql.delete(0, toRemove.trim().length());
+          break;
+        }
+      }
+    }
+    if (prefix != null) {
+      sql.insert(0, " ");
+      sql.insert(0, prefix);
+    }
+  }
+
+  private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
+    if (suffixesToOverride != null) {
+      for (String toRemove : suffixesToOverride) {
+        if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
+          int start = sql.length() - toRemove.trim().length();
+          int end = sql.length();
+          sql.delete(start, end);
+          break;
+        }
+      }
+    }
+    if (suffix != null) {
+      sql.append(" ");
+      sql.append(suffix);
+    }
+  }
+
   private static List<String> parseOverrides(String overrides) {
     if (overrides != null) {
       final StringTokenizer parser = new StringTokenizer(overrides, "|", false);
@@ -71,26 +155,16 @@ public class TrimSqlNode implements SqlNode {
 
   private class FilteredDynamicContext extends DynamicContext {
     private DynamicContext delegate;
-    private boolean prefixApplied;
-    private boolean suffixApplied;
     private StringBuilder sqlBuffer;
 
     public FilteredDynamicContext(DynamicContext delegate) {
       super(configuration, null);
       this.delegate = delegate;
-      this.prefixApplied = false;
-      this.suffixApplied = false;
       this.sqlBuffer = new StringBuilder();
     }
 
     public void applyAll() {
-      sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
-      String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
-      if (trimmedUppercaseSql.length() > 0) {
-        applyPrefix(sqlBuffer, trimmedUppercaseSql);
-        applySuffix(sqlBuffer, trimmedUppercaseSql);
-      }
-      delegate.appendSql(sqlBuffer.toString());
+      delegate.appendSql(applyTrim(sqlBuffer.toString()));
     }
 
     @Override
@@ -118,44 +192,6 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getSql();
     }
 
-    private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
-      if (!prefixApplied) {
-        prefixApplied = true;
-        if (prefixesToOverride != null) {
-          for (String toRemove : prefixesToOverride) {
-            if (trimmedUppercaseSql.startsWith(toRemove)) {
-              sql.delete(0, toRemove.trim().length());
-              break;
-            }
-          }
-        }
-        if (prefix != null) {
-          sql.insert(0, " ");
-          sql.insert(0, prefix);
-        }
-      }
-    }
-
-    private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
-      if (!suffixApplied) {
-        suffixApplied = true;
-        if (suffixesToOverride != null) {
-          for (String toRemove : suffixesToOverride) {
-            if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
-              int start = sql.length() - toRemove.trim().length();
-              int end = sql.length();
-              sql.delete(start, end);
-              break;
-            }
-          }
-        }
-        if (suffix != null) {
-          sql.append(" ");
-          sql.append(suffix);
-        }
-      }
-    }
-
   }
 
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,7 +18,7 @@ package org.apache.ibatis.scripting.xmltags;
 /**
  * @author Frank D. Martinez [mnesarco]
  */
-public class VarDeclSqlNode implements SqlNode {
+public class VarDeclSqlNode implements SqlNode, SqlNodeCompiler.Compilable {
 
   private final String name;
   private final String expression;
@@ -35,4 +35,17 @@ public class VarDeclSqlNode implements SqlNode {
     return true;
   }
 
+  @Override
+  public CompiledSqlNode compile(SqlNodeCompiler compiler) {
+    compiler.addBoundName(name);
+    return new CompiledSqlNode() {
+      @Override
+      public boolean apply(CompiledSqlContext context) {
+        final Object value = OgnlCache.getValue(expression, context.getBindings());
+        context.bind(name, value);
+        return true;
+      }
+    };
+  }
+
 }
@@ -34,12 +34,17 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResultListener;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
@@ -49,6 +54,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.AutoMappingCache;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -109,6 +115,19 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean compileDynamicSql;
+  protected int dynamicSqlCacheSize;
+  protected boolean compileExpressions;
+  protected boolean generateMapperClasses;
+  protected boolean readColumnsByIndex;
+  protected int autoMappingCacheSize = 256;
+  protected boolean groupBatchStatements;
+  protected int batchFlushSize;
+  protected BatchResultListener batchResultListener;
+  protected int multiRowInsertSize;
+  protected int batchPipelineDepth;
+  protected int statementCacheSize;
+  protected StatementCacheScope statementCacheScope = StatementCacheScope.SESSION;
 
   protected String logPrefix;
   protected Class <? extends Log> logImpl;
@@ -144,6 +163,7 @@ public class Configuration {
   protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  protected final AutoMappingCache autoMappingCache = new AutoMappingCache(autoMappingCacheSize);
 
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
   protected final Map<String, Cache> caches = new StrictMap<Cache>("Caches collection");
@@ -177,13 +197,17 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_PERPETUAL", ConcurrentPerpetualCache.class);
+    typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -251,6 +275,210 @@ public class Configuration {
     this.useActualParamName = useActualParamName;
   }
 
+  /**
+   * @since 3.4.7
+   */
+  public boolean isCompileDynamicSql() {
+    return compileDynamicSql;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setCompileDynamicSql(boolean compileDynamicSql) {
+    this.compileDynamicSql = compileDynamicSql;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isCompileExpressions() {
+    return compileExpressions;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setCompileExpressions(boolean compileExpressions) {
+    this.compileExpressions = compileExpressions;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isGenerateMapperClasses() {
+    return generateMapperClasses;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setGenerateMapperClasses(boolean generateMapperClasses) {
+    this.generateMapperClasses = generateMapperClasses;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isReadColumnsByIndex() {
+    return readColumnsByIndex;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setReadColumnsByIndex(boolean readColumnsByIndex) {
+    this.readColumnsByIndex = readColumnsByIndex;
+    autoMappingCache.clear();
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getAutoMappingCacheSize() {
+    return autoMappingCacheSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setAutoMappingCacheSize(int autoMappingCacheSize) {
+    this.autoMappingCacheSize = autoMappingCacheSize;
+    autoMappingCache.setMaxSize(autoMappingCacheSize);
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public AutoMappingCache getAutoMappingCache() {
+    return autoMappingCache;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isGroupBatchStatements() {
+    return groupBatchStatements;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setGroupBatchStatements(boolean groupBatchStatements) {
+    this.groupBatchStatements = groupBatchStatements;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  /**
+   * Sets the number of updates after which a batch executor flushes its statements, 0 to only flush them on demand.
+   *
+   * @since 3.4.7
+   */
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public BatchResultListener getBatchResultListener() {
+    return batchResultListener;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setBatchResultListener(BatchResultListener batchResultListener) {
+    this.batchResultListener = batchResultListener;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getMultiRowInsertSize() {
+    return multiRowInsertSize;
+  }
+
+  /**
+   * Sets the maximum number of rows of the multi-row inserts a batch executor sends for single-row inserts,
+   * 0 to send the inserts as JDBC batches.
+   *
+   * @since 3.4.7
+   */
+  public void setMultiRowInsertSize(int multiRowInsertSize) {
+    this.multiRowInsertSize = multiRowInsertSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getBatchPipelineDepth() {
+    return batchPipelineDepth;
+  }
+
+  /**
+   * Sets the number of automatically flushed batches a batch executor may execute in the background while more
+   * updates are added, 0 to execute them on the calling thread.
+   * The batches are executed on the connection of the session, so the driver must allow it to be used by two threads.
+   *
+   * @since 3.4.7
+   * @see #setBatchFlushSize(int)
+   */
+  public void setBatchPipelineDepth(int batchPipelineDepth) {
+    this.batchPipelineDepth = batchPipelineDepth;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getStatementCacheSize() {
+    return statementCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of statements a reuse executor keeps open, 0 for no maximum in a session
+   * and {@link org.apache.ibatis.executor.StatementCache#DEFAULT_CONNECTION_MAX_SIZE} on a pooled connection.
+   *
+   * @since 3.4.7
+   */
+  public void setStatementCacheSize(int statementCacheSize) {
+    this.statementCacheSize = statementCacheSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public StatementCacheScope getStatementCacheScope() {
+    return statementCacheScope;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setStatementCacheScope(StatementCacheScope statementCacheScope) {
+    this.statementCacheScope = statementCacheScope;
+  }
+
   public boolean isReturnInstanceForEmptyRow() {
     return returnInstanceForEmptyRow;
   }
@@ -297,6 +525,7 @@ public class Configuration {
 
   public void setMapUnderscoreToCamelCase(boolean mapUnderscoreToCamelCase) {
     this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+    autoMappingCache.clear();
   }
 
   public void addLoadedResource(String resource) {
@@ -432,6 +661,7 @@ public class Configuration {
 
   public void setUseColumnLabel(boolean useColumnLabel) {
     this.useColumnLabel = useColumnLabel;
+    autoMappingCache.clear();
   }
 
   public LocalCacheScope getLocalCacheScope() {
@@ -491,6 +721,7 @@ public class Configuration {
 
   public void setReflectorFactory(ReflectorFactory reflectorFactory) {
 	  this.reflectorFactory = reflectorFactory;
+    autoMappingCache.clear();
   }
 
   public ObjectFactory getObjectFactory() {
@@ -507,6 +738,7 @@ public class Configuration {
 
   public void setObjectWrapperFactory(ObjectWrapperFactory objectWrapperFactory) {
     this.objectWrapperFactory = objectWrapperFactory;
+    autoMappingCache.clear();
   }
 
   /**
@@ -0,0 +1,30 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * Where a {@code REUSE} executor keeps its statements.
+ * <p>
+ * {@code SESSION} statements are closed when the statements are flushed (commit, rollback and close).
+ * {@code CONNECTION} statements are kept open with the connections of the pooled data sources, which provide a
+ * statement cache through {@code Connection.unwrap(StatementCache.class)}, and are reused by the following sessions;
+ * with other connections the session's cache is used.
+ *
+ * @since 3.4.7
+ */
+public enum StatementCacheScope {
+  SESSION, CONNECTION
+}
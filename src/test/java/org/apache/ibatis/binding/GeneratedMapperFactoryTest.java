@@ -0,0 +1,184 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Test;
+
+public class GeneratedMapperFactoryTest {
+
+  @Test
+  public void shouldCallTheSqlSessionDirectly() {
+    RecordingSqlSession recorder = new RecordingSqlSession(configuration(true));
+    NameMapper mapper = recorder.getMapper(NameMapper.class);
+    assertTrue(mapper instanceof GeneratedMapper);
+    assertFalse(Proxy.isProxyClass(mapper.getClass()));
+    assertEquals(1, mapper.insert("jim"));
+    mapper.update("jim");
+    assertTrue(mapper.delete(1));
+    assertEquals(Long.valueOf(3), mapper.countAll());
+    assertEquals(Collections.singletonList("jim"), mapper.selectAll());
+    assertEquals("[insert jim, update jim, delete 1, selectOne null, selectList null]", recorder.calls.toString());
+  }
+
+  @Test
+  public void shouldDelegateOtherMethodsToMapperMethod() {
+    RecordingSqlSession recorder = new RecordingSqlSession(configuration(true));
+    NameMapper mapper = recorder.getMapper(NameMapper.class);
+    assertEquals(1, mapper.insertWithParam("jim"));
+    assertEquals(1, mapper.insertBoth("jim", 1));
+    assertEquals("jim", ((Map<?, ?>) recorder.lastParameter).get("param1"));
+    assertEquals(1, ((Map<?, ?>) recorder.lastParameter).get("param2"));
+    mapper.selectPage(new RowBounds(1, 2));
+    assertEquals(3, recorder.calls.size());
+    assertTrue(recorder.calls.get(0).startsWith("insert {"));
+    assertTrue(recorder.calls.get(1).startsWith("insert {"));
+    assertTrue(recorder.calls.get(2).startsWith("selectList null"));
+  }
+
+  @Test
+  public void shouldFailLikeTheProxy() {
+    for (boolean generate : new boolean[] { true, false }) {
+      RecordingSqlSession recorder = new RecordingSqlSession(configuration(generate));
+      NameMapper mapper = recorder.getMapper(NameMapper.class);
+      recorder.result = null;
+      assertNull(mapper.countAll());
+      try {
+        mapper.countPrimitive();
+        fail();
+      } catch (BindingException e) {
+        assertTrue(e.getMessage().contains("attempted to return null from a method with a primitive return type (int)"));
+      }
+      try {
+        mapper.unbound();
+        fail();
+      } catch (BindingException e) {
+        assertTrue(e.getMessage().startsWith("Invalid bound statement (not found)"));
+      }
+    }
+  }
+
+  @Test
+  public void shouldUseProxiesForNonPublicMappers() {
+    RecordingSqlSession recorder = new RecordingSqlSession(configuration(true));
+    HiddenMapper mapper = recorder.getMapper(HiddenMapper.class);
+    assertTrue(Proxy.isProxyClass(mapper.getClass()));
+    assertEquals(1, mapper.insert("jim"));
+  }
+
+  @Test
+  public void shouldNotGenerateByDefault() {
+    RecordingSqlSession recorder = new RecordingSqlSession(configuration(false));
+    assertTrue(Proxy.isProxyClass(recorder.getMapper(NameMapper.class).getClass()));
+  }
+
+  private Configuration configuration(boolean generateMapperClasses) {
+    Configuration configuration = new Configuration();
+    configuration.setGenerateMapperClasses(generateMapperClasses);
+    configuration.addMapper(NameMapper.class);
+    configuration.addMapper(HiddenMapper.class);
+    return configuration;
+  }
+
+  public interface NameMapper {
+    @Insert("insert into names (name) values (#{name})")
+    int insert(String name);
+
+    @Update("update names set name = #{name}")
+    void update(String name);
+
+    @Delete("delete from names where id = #{id}")
+    boolean delete(int id);
+
+    @Select("select count(*) from names")
+    Long countAll();
+
+    @Select("select count(*) from names")
+    int countPrimitive();
+
+    @Select("select name from names")
+    List<String> selectAll();
+
+    @Select("select name from names")
+    List<String> selectPage(RowBounds rowBounds);
+
+    @Insert("insert into names (name) values (#{name})")
+    int insertWithParam(@Param("name") String name);
+
+    @Insert("insert into names (name, id) values (#{param1}, #{param2})")
+    int insertBoth(String name, int id);
+
+    String unbound();
+  }
+
+  interface HiddenMapper {
+    @Insert("insert into names (name) values (#{name})")
+    int insert(String name);
+  }
+
+  private static class RecordingSqlSession implements InvocationHandler {
+    private final Configuration configuration;
+    private final List<String> calls = new ArrayList<String>();
+    private Object lastParameter;
+    private Object result = 3L;
+
+    RecordingSqlSession(Configuration configuration) {
+      this.configuration = configuration;
+    }
+
+    <T> T getMapper(Class<T> type) {
+      SqlSession sqlSession = (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSession.class }, this);
+      return configuration.getMapper(type, sqlSession);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (method.getName().equals("getConfiguration")) {
+        return configuration;
+      }
+      lastParameter = args[1];
+      calls.add(method.getName() + " " + args[1]);
+      if (method.getName().equals("selectOne")) {
+        return result;
+      } else if (method.getName().equals("selectList")) {
+        return Collections.singletonList("jim");
+      }
+      return 1;
+    }
+  }
+
+}
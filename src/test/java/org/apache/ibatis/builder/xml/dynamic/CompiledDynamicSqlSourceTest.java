@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class CompiledDynamicSqlSourceTest {
+
+  @Test
+  public void shouldRenderIfAndWhereLikeInterpretedSql() {
+    String script = "<script>SELECT * FROM AUTHOR"
+        + "<where><if test='id != null'>AND id = #{id}</if>"
+        + "<if test='username != null'>AND username = #{username,jdbcType=VARCHAR}</if></where></script>";
+    assertSameBoundSql(script, new Author(101, "jim", null, null, null, null));
+    assertSameBoundSql(script, new Author(-1));
+  }
+
+  @Test
+  public void shouldRenderSetAndTrimLikeInterpretedSql() {
+    String script = "<script>UPDATE AUTHOR<set><if test='username != null'>username = #{username},</if>"
+        + "<if test='email != null'>email = #{email},</if></set>"
+        + "<trim prefix='WHERE' prefixOverrides='AND |OR '>AND id = #{id}</trim></script>";
+    assertSameBoundSql(script, new Author(101, "jim", null, "jim@ibatis.apache.org", null, Section.NEWS));
+    assertSameBoundSql(script, new Author(101, null, null, "jim@ibatis.apache.org", null, null));
+  }
+
+  @Test
+  public void shouldRenderForEachLikeInterpretedSql() {
+    String script = "<script>SELECT * FROM AUTHOR WHERE id IN"
+        + "<foreach collection='ids' item='id' index='i' open='(' close=')' separator=','>#{id}</foreach>"
+        + "<foreach collection='names' item='name' index='key' open='OR (' close=')' separator=' OR '>"
+        + "<if test='name != null'>${key} = #{name}</if></foreach></script>";
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("ids", Arrays.asList(1, 2, 3));
+    Map<String, Object> names = new LinkedHashMap<String, Object>();
+    names.put("username", null);
+    names.put("email", "jim@ibatis.apache.org");
+    names.put("bio", "bio");
+    param.put("names", names);
+    assertSameBoundSql(script, param);
+    param.put("ids", Collections.emptyList());
+    assertSameBoundSql(script, param);
+  }
+
+  @Test
+  public void shouldRenderNestedForEachLikeInterpretedSql() {
+    String script = "<script>SELECT * FROM AUTHOR WHERE"
+        + "<foreach collection='rows' item='row' separator='OR'>"
+        + "(<foreach collection='row' item='col' index='i' separator='AND'>c${i} = #{col} AND id = #{id}</foreach>)"
+        + "</foreach></script>";
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("id", 1);
+    param.put("rows", Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c")));
+    assertSameBoundSql(script, param);
+  }
+
+  @Test
+  public void shouldRenderChooseAndBindLikeInterpretedSql() {
+    String script = "<script><bind name='pattern' value=\"'%' + username + '%'\"/>SELECT * FROM AUTHOR WHERE"
+        + "<choose><when test='id > 100'>id = #{id}</when><when test='username != null'>username LIKE #{pattern}</when>"
+        + "<otherwise>1 = 1</otherwise></choose></script>";
+    assertSameBoundSql(script, new Author(101, "jim", null, null, null, null));
+    assertSameBoundSql(script, new Author(1, "jim", null, null, null, null));
+  }
+
+  @Test
+  public void shouldRenderSubstitutionsLikeInterpretedSql() {
+    String script = "<script>SELECT * FROM ${table} WHERE ${column} = #{value}</script>";
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("table", "AUTHOR");
+    param.put("column", "id");
+    param.put("value", 1);
+    assertSameBoundSql(script, param);
+    param.put("column", "id = #{value} AND id");
+    assertSameBoundSql(script, param);
+  }
+
+  @Test
+  public void shouldReuseParameterMappingsOfStaticText() {
+    String script = "<script>SELECT * FROM AUTHOR WHERE id = #{id}<if test='username != null'>AND username = #{username}</if></script>";
+    SqlSource sqlSource = compiled(script);
+    Author author = new Author(101, "jim", null, null, null, null);
+    List<ParameterMapping> first = sqlSource.getBoundSql(author).getParameterMappings();
+    List<ParameterMapping> second = sqlSource.getBoundSql(author).getParameterMappings();
+    assertSame(first.get(0), second.get(0));
+    assertSame(first.get(1), second.get(1));
+    assertEquals(int.class, first.get(0).getJavaType());
+  }
+
+  @Test
+  public void shouldNotReuseParameterMappingsOfBoundNames() {
+    String script = "<script><bind name='pattern' value=\"'%' + username + '%'\"/>"
+        + "SELECT * FROM AUTHOR WHERE username LIKE #{pattern}</script>";
+    SqlSource sqlSource = compiled(script);
+    Author author = new Author(101, "jim", null, null, null, null);
+    assertNotSame(sqlSource.getBoundSql(author).getParameterMappings().get(0),
+        sqlSource.getBoundSql(author).getParameterMappings().get(0));
+  }
+
+  private void assertSameBoundSql(String script, Object parameterObject) {
+    BoundSql expected = interpreted(script).getBoundSql(parameterObject);
+    BoundSql actual = compiled(script).getBoundSql(parameterObject);
+    assertEquals(expected.getSql(), actual.getSql());
+    assertEquals(expected.getParameterMappings().size(), actual.getParameterMappings().size());
+    for (int i = 0; i < expected.getParameterMappings().size(); i++) {
+      ParameterMapping expectedMapping = expected.getParameterMappings().get(i);
+      ParameterMapping actualMapping = actual.getParameterMappings().get(i);
+      assertEquals(expectedMapping.getProperty(), actualMapping.getProperty());
+      assertEquals(expectedMapping.getJavaType(), actualMapping.getJavaType());
+      assertEquals(expectedMapping.getJdbcType(), actualMapping.getJdbcType());
+      assertEquals(expected.getAdditionalParameter(expectedMapping.getProperty()),
+          actual.getAdditionalParameter(actualMapping.getProperty()));
+    }
+  }
+
+  private SqlSource interpreted(String script) {
+    return new XMLLanguageDriver().createSqlSource(new Configuration(), script, null);
+  }
+
+  private SqlSource compiled(String script) {
+    Configuration configuration = new Configuration();
+    configuration.setCompileDynamicSql(true);
+    return new XMLLanguageDriver().createSqlSource(configuration, script, null);
+  }
+
+}
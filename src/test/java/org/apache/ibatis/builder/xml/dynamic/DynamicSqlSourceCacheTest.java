@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class DynamicSqlSourceCacheTest {
+
+  @Test
+  public void shouldReuseParsedSqlOfTheSameShape() {
+    DynamicSqlSource sqlSource = createSqlSource(8, "<script>SELECT * FROM AUTHOR"
+        + "<where><if test='id != null'>id = #{id}</if><if test='username != null'>AND username = #{username}</if></where></script>");
+    BoundSql first = sqlSource.getBoundSql(new Author(101, "jim", null, null, null, null));
+    BoundSql second = sqlSource.getBoundSql(new Author(102, "sally", null, null, null, null));
+    BoundSql other = sqlSource.getBoundSql(new Author(103, null, null, null, null, null));
+    assertEquals("SELECT * FROM AUTHOR WHERE id = ?AND username = ?", second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals("SELECT * FROM AUTHOR WHERE id = ?", other.getSql());
+    assertEquals(1, other.getParameterMappings().size());
+    assertEquals(1, sqlSource.getCacheHitCount());
+    assertEquals(2, sqlSource.getCacheMissCount());
+  }
+
+  @Test
+  public void shouldNotReuseParsedSqlWhenBoundValuesHaveAnotherType() {
+    DynamicSqlSource sqlSource = createSqlSource(8, "<script>SELECT * FROM AUTHOR WHERE id IN"
+        + "<foreach collection='ids' item='id' open='(' close=')' separator=','>#{id}</foreach></script>");
+    BoundSql integers = sqlSource.getBoundSql(param("ids", Arrays.asList(1, 2)));
+    BoundSql strings = sqlSource.getBoundSql(param("ids", Arrays.asList("1", "2")));
+    assertEquals(integers.getSql(), strings.getSql());
+    assertEquals(Integer.class, integers.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, strings.getParameterMappings().get(0).getJavaType());
+    assertEquals(0, sqlSource.getCacheHitCount());
+    sqlSource.getBoundSql(param("ids", Arrays.asList("3", "4")));
+    assertEquals(1, sqlSource.getCacheHitCount());
+  }
+
+  @Test
+  public void shouldDisableCacheWhenSubstitutionsRenderTooManyShapes() {
+    DynamicSqlSource sqlSource = createSqlSource(4, "<script>SELECT * FROM AUTHOR WHERE id = ${id}</script>");
+    for (int i = 0; i < 5; i++) {
+      sqlSource.getBoundSql(param("id", i));
+    }
+    assertFalse(sqlSource.isCacheEnabled());
+    assertEquals("SELECT * FROM AUTHOR WHERE id = 5", sqlSource.getBoundSql(param("id", 5)).getSql());
+    assertEquals(5, sqlSource.getCacheMissCount());
+  }
+
+  @Test
+  public void shouldKeepCacheWhenShapesAreReused() {
+    DynamicSqlSource sqlSource = createSqlSource(2, "<script>SELECT * FROM AUTHOR WHERE id = #{id}"
+        + "<if test='username != null'>AND username = #{username}</if><if test='email != null'>AND email = #{email}</if></script>");
+    for (int i = 0; i < 10; i++) {
+      sqlSource.getBoundSql(new Author(101, "jim", null, null, null, null));
+      sqlSource.getBoundSql(new Author(101, null, null, null, null, null));
+    }
+    sqlSource.getBoundSql(new Author(101, null, null, "jim@ibatis.apache.org", null, null));
+    assertTrue(sqlSource.isCacheEnabled());
+    assertEquals(18, sqlSource.getCacheHitCount());
+  }
+
+  @Test
+  public void shouldNotCacheByDefault() {
+    DynamicSqlSource sqlSource = (DynamicSqlSource) new XMLLanguageDriver().createSqlSource(new Configuration(),
+        "<script>SELECT * FROM AUTHOR<if test='id != null'>WHERE id = #{id}</if></script>", null);
+    sqlSource.getBoundSql(new Author(101));
+    assertFalse(sqlSource.isCacheEnabled());
+    assertEquals(0, sqlSource.getCacheMissCount());
+  }
+
+  private DynamicSqlSource createSqlSource(int cacheSize, String script) {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(cacheSize);
+    return (DynamicSqlSource) new XMLLanguageDriver().createSqlSource(configuration, script, null);
+  }
+
+  private Map<String, Object> param(String name, Object value) {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put(name, value);
+    return param;
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class BlockingCacheTest {
+
+  @Test
+  public void shouldLetOnlyOneThreadLoadAMissingKey() throws Exception {
+    final BlockingCache cache = new BlockingCache(new ConcurrentPerpetualCache("default"));
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(8);
+    for (int i = 0; i < 8; i++) {
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            if (cache.getObject("key") == null) {
+              loads.incrementAndGet();
+              Thread.sleep(50);
+              cache.putObject("key", "value");
+            }
+          } catch (InterruptedException e) {
+            // ignored
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+    start.countDown();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void shouldServeHitsWhileAnotherKeyIsLoading() throws Exception {
+    final BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.putObject("hit", "value");
+    assertNull(cache.getObject("miss"));
+    final AtomicInteger hits = new AtomicInteger();
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        if (cache.getObject("hit") != null) {
+          hits.incrementAndGet();
+        }
+      }
+    };
+    reader.start();
+    reader.join(1000);
+    assertEquals(1, hits.get());
+    cache.removeObject("miss");
+  }
+
+  @Test
+  public void shouldLetAnotherThreadLoadWhenTheLoaderGivesUp() throws Exception {
+    final BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    final AtomicInteger misses = new AtomicInteger();
+    Thread waiter = new Thread() {
+      @Override
+      public void run() {
+        if (cache.getObject("key") == null) {
+          misses.incrementAndGet();
+          cache.removeObject("key");
+        }
+      }
+    };
+    waiter.start();
+    Thread.sleep(50);
+    assertEquals(0, misses.get());
+    // e.g. the transaction was rolled back
+    cache.removeObject("key");
+    waiter.join(1000);
+    assertEquals(1, misses.get());
+  }
+
+  @Test
+  public void shouldTimeOutWaitingForTheLoader() throws Exception {
+    final BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(20);
+    assertNull(cache.getObject("key"));
+    final AtomicInteger failures = new AtomicInteger();
+    Thread waiter = new Thread() {
+      @Override
+      public void run() {
+        try {
+          cache.getObject("key");
+        } catch (CacheException e) {
+          failures.incrementAndGet();
+        }
+      }
+    };
+    waiter.start();
+    waiter.join(1000);
+    assertEquals(1, failures.get());
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+}
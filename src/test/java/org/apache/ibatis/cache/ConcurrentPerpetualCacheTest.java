@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ConcurrentPerpetualCacheTest {
+
+  @Test
+  public void shouldDemonstrateHowAllObjectsAreKept() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    for (int i = 0; i < 100000; i++) {
+      cache.putObject(i, i);
+      assertEquals(i, cache.getObject(i));
+    }
+    assertEquals(100000, cache.getSize());
+  }
+
+  @Test
+  public void shouldDemonstrateCopiesAreEqual() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    cache = new SerializedCache(cache);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+      assertEquals(i, cache.getObject(i));
+    }
+  }
+
+  @Test
+  public void shouldAcceptNullKeysAndValues() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    cache.putObject(null, 1);
+    assertEquals(1, cache.getObject(null));
+    cache.putObject(0, 0);
+    cache.putObject(0, null);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  public void shouldNotSynchronizeThreadSafeDecoratorChain() {
+    Cache cache = new CacheBuilder("default").implementation(ConcurrentPerpetualCache.class).readWrite(true).build();
+    assertTrue(cache instanceof LoggingCache);
+  }
+
+  @Test
+  public void shouldSynchronizeWhenAnyDecoratorIsNotThreadSafe() {
+    Cache cache = new CacheBuilder("default").implementation(ConcurrentPerpetualCache.class).addDecorator(LruCache.class).build();
+    assertTrue(cache instanceof SynchronizedCache);
+    cache = new CacheBuilder("default").implementation(ConcurrentPerpetualCache.class).clearInterval(1000L).build();
+    assertTrue(cache instanceof SynchronizedCache);
+  }
+
+}
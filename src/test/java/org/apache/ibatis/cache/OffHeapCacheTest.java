@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void shouldStoreCopiesOfValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    cache.putObject("author", author);
+    Author copy = (Author) cache.getObject("author");
+    assertEquals(author, copy);
+    assertNotSame(author, copy);
+    assertNull(cache.getObject("missing"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertTrue(cache.getBytesUsed() > 0);
+    assertEquals(4 * 1024 * 1024, cache.getBytesAllocated());
+  }
+
+  @Test
+  public void shouldEvictOldestSegmentWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(4096);
+    cache.setSegmentSize(1024);
+    cache.setSerializer("reflector");
+    cache.initialize();
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, "value " + i);
+    }
+    assertTrue(cache.getBytesUsed() <= 4096);
+    assertTrue(cache.getEvictionCount() > 0);
+    assertEquals(1000 - cache.getEvictionCount(), cache.getSize());
+    assertNull(cache.getObject(0));
+    assertEquals("value 999", cache.getObject(999));
+  }
+
+  @Test
+  public void shouldReleaseBytesOfReplacedAndRemovedValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSerializer("reflector");
+    cache.putObject(0, "first");
+    long bytes = cache.getBytesUsed();
+    cache.putObject(0, "other");
+    assertEquals(bytes, cache.getBytesUsed());
+    assertEquals("other", cache.removeObject(0));
+    assertEquals(0, cache.getBytesUsed());
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectMaxBytesBelowSegmentSize() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(100);
+    cache.initialize();
+  }
+
+  @Test
+  public void shouldBuildFromAliasAndProperties() {
+    Configuration configuration = new Configuration();
+    Class<? extends Cache> type = configuration.getTypeAliasRegistry().resolveAlias("OFF_HEAP");
+    Properties props = new Properties();
+    props.setProperty("maxBytes", "8192");
+    props.setProperty("segmentSize", "1024");
+    props.setProperty("serializer", "reflector");
+    Cache cache = new CacheBuilder("default").implementation(type).properties(props).build();
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+}
@@ -0,0 +1,90 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.ReflectorSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class SerializedCacheTest {
+
+  @Test
+  public void shouldReturnCopiesWithReflectorSerializer() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.setSerializer("reflector");
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Blog blog = new Blog(1, "Blog", author, null);
+    cache.putObject("blog", blog);
+    blog.setTitle("Changed");
+    Blog first = (Blog) cache.getObject("blog");
+    Blog second = (Blog) cache.getObject("blog");
+    assertEquals("Blog", first.getTitle());
+    assertEquals(author, first.getAuthor());
+    assertNotSame(first, second);
+    assertNotSame(first.getAuthor(), second.getAuthor());
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectNonSerializableObjectsWithJavaSerializer() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.putObject("blog", new Blog());
+  }
+
+  @Test
+  public void shouldStoreNullValues() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.setSerializer("reflector");
+    cache.putObject("key", null);
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldConfigureSerializerFromCacheProperties() {
+    Properties props = new Properties();
+    props.setProperty("serializer", "reflector");
+    Cache cache = new CacheBuilder("default").readWrite(true).properties(props).build();
+    List<Blog> blogs = new ArrayList<Blog>();
+    blogs.add(new Blog(1, "Blog", null, null));
+    // Blog is not Serializable, so this only works with the reflector serializer
+    cache.putObject("blogs", blogs);
+    List<?> copy = (List<?>) cache.getObject("blogs");
+    assertEquals("Blog", ((Blog) copy.get(0)).getTitle());
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldFailForUnknownSerializer() {
+    new SerializedCache(new PerpetualCache("default")).setSerializer("org.example.Missing");
+  }
+
+  @Test
+  public void shouldUseReflectorSerializerInstance() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.setSerializer(ReflectorSerializer.class.getName());
+    assertTrue(cache.getSerializer() instanceof ReflectorSerializer);
+  }
+
+}
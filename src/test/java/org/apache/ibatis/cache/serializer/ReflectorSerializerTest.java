@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.Test;
+
+public class ReflectorSerializerTest {
+
+  private final Serializer serializer = new ReflectorSerializer();
+
+  @Test
+  public void shouldCopySimpleValues() {
+    Timestamp timestamp = new Timestamp(1000L);
+    timestamp.setNanos(123456789);
+    List<Object> values = Arrays.<Object>asList("text", 1, 2L, (short) 3, (byte) 4, true, 'c', 1.5f, 2.5d,
+        new BigDecimal("123.450"), new Date(1000L), new java.sql.Date(2000L), timestamp, Section.VIDEOS, null);
+    for (Object value : values) {
+      assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) serializer.deserialize(serializer.serialize(new byte[] { 1, 2, 3 })));
+  }
+
+  @Test
+  public void shouldCopyBeanGraphWithCycles() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Blog blog = new Blog(1, "Blog", author, new ArrayList<Post>());
+    for (int i = 0; i < 3; i++) {
+      Post post = new Post();
+      post.setId(i);
+      post.setAuthor(author);
+      post.setBlog(blog);
+      post.setCreatedOn(new Date(i));
+      post.setSubject("subject " + i);
+      blog.getPosts().add(post);
+    }
+
+    Blog copy = (Blog) serializer.deserialize(serializer.serialize(blog));
+
+    assertNotSame(blog, copy);
+    assertEquals("Blog", copy.getTitle());
+    assertEquals(author, copy.getAuthor());
+    assertNotSame(author, copy.getAuthor());
+    assertEquals(3, copy.getPosts().size());
+    for (int i = 0; i < 3; i++) {
+      Post post = copy.getPosts().get(i);
+      assertEquals(i, post.getId());
+      assertEquals("subject " + i, post.getSubject());
+      assertSame(copy, post.getBlog());
+      assertSame(copy.getAuthor(), post.getAuthor());
+    }
+  }
+
+  @Test
+  public void shouldCopyCollectionsAndFallBackToJavaSerialization() {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("list", new ArrayList<Object>(Arrays.asList(1, "two")));
+    map.put("unmodifiable", Collections.unmodifiableList(Arrays.asList(3, 4)));
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) serializer.deserialize(serializer.serialize(map));
+    assertEquals(map, copy);
+    assertNotSame(map.get("list"), copy.get("list"));
+  }
+
+  @Test
+  public void shouldCopyCollectionSubclassesWithJavaSerialization() {
+    Page page = new Page();
+    page.add(new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS));
+    page.add(new Author(102, "sally", "********", "sally@ibatis.apache.org", "", Section.VIDEOS));
+    page.setTotal(42);
+    Page copy = (Page) serializer.deserialize(serializer.serialize(page));
+    assertEquals(2, copy.size());
+    assertEquals(42, copy.getTotal());
+    assertEquals(page.get(1).toString(), copy.get(1).toString());
+  }
+
+  @Test
+  public void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<Author>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "password", "user" + i + "@ibatis.apache.org", "bio", Section.NEWS));
+    }
+    int compact = serializer.serialize(authors).length;
+    int java = new JavaSerializer().serialize(authors).length;
+    assertTrue(compact + " bytes compared to " + java, compact < java);
+  }
+
+  public static class Page extends ArrayList<Author> {
+    private static final long serialVersionUID = 1L;
+    private int total;
+
+    public int getTotal() {
+      return total;
+    }
+
+    public void setTotal(int total) {
+      this.total = total;
+    }
+  }
+
+}
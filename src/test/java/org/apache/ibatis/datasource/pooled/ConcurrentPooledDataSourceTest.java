@@ -0,0 +1,198 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class ConcurrentPooledDataSourceTest extends BaseDataTest {
+
+  @Test
+  public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(3, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReuseTheConnectionLastReturnedByTheSameThread() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      Connection first = ds.getConnection();
+      Connection second = ds.getConnection();
+      second.close();
+      first.close();
+      Connection c = ds.getConnection();
+      assertSame(PooledDataSource.unwrapConnection(first), PooledDataSource.unwrapConnection(c));
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldHandOffReturnedConnectionToWaitingThreads() throws Exception {
+    final ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMaximumIdleConnections(2);
+      final int threadCount = 8;
+      final CountDownLatch start = new CountDownLatch(1);
+      final CountDownLatch done = new CountDownLatch(threadCount);
+      final AtomicInteger maxActive = new AtomicInteger();
+      final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+      for (int i = 0; i < threadCount; i++) {
+        new Thread() {
+          @Override
+          public void run() {
+            try {
+              start.await();
+              for (int j = 0; j < 50; j++) {
+                Connection c = ds.getConnection();
+                int active = ds.getPoolState().getActiveConnectionCount();
+                if (active > maxActive.get()) {
+                  maxActive.set(active);
+                }
+                c.close();
+              }
+            } catch (Throwable t) {
+              errors.add(t);
+            } finally {
+              done.countDown();
+            }
+          }
+        }.start();
+      }
+      start.countDown();
+      done.await();
+      assertTrue(errors.toString(), errors.isEmpty());
+      assertTrue(maxActive.get() <= 2);
+      assertEquals(threadCount * 50, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldClaimOverdueConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(10);
+      ds.setPoolTimeToWait(10);
+      Connection leaked = ds.getConnection();
+      Thread.sleep(20);
+      Connection c = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      try {
+        leaked.getAutoCommit();
+        fail("Overdue connection should have been invalidated");
+      } catch (SQLException e) {
+        // expected
+      }
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldInvalidateActiveConnectionsOnForceCloseAll() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    Connection c = ds.getConnection();
+    ds.forceCloseAll();
+    assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    c.close();
+    assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  public void shouldEvictAndFillIdleConnectionsWhenHousekeeping() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolMaximumIdleConnections(3);
+      ds.housekeep();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      Connection c3 = ds.getConnection();
+      c1.close();
+      c2.close();
+      c3.close();
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+      ds.setPoolMaximumIdleTime(1);
+      Thread.sleep(5);
+      ds.housekeep();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldRegisterConcurrentPooledAlias() {
+    Configuration configuration = new Configuration();
+    assertEquals(ConcurrentPooledDataSourceFactory.class,
+        configuration.getTypeAliasRegistry().resolveAlias("CONCURRENT_POOLED"));
+  }
+
+  private ConcurrentPooledDataSource createConcurrentPooledDataSource() throws IOException {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    return new ConcurrentPooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password"));
+  }
+
+}
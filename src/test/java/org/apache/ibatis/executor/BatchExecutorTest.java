@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,7 +15,19 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.junit.Test;
 
 public class BatchExecutorTest extends BaseExecutorTest {
@@ -24,6 +36,122 @@ public class BatchExecutorTest extends BaseExecutorTest {
   public void dummy() {
   }
 
+  @Test
+  public void shouldGroupInterleavedStatements() throws Exception {
+    config.setGroupBatchStatements(true);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(97, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(101, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(98, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(102, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(insertStatement, results.get(0).getMappedStatement());
+      assertArrayEquals(new int[] { 1, 1 }, results.get(0).getUpdateCounts());
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(updateStatement, results.get(1).getMappedStatement());
+      assertArrayEquals(new int[] { 1, 1 }, results.get(1).getUpdateCounts());
+      assertEquals(2, results.get(1).getParameterObjects().size());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldFlushAutomatically() throws Exception {
+    config.setBatchFlushSize(2);
+    final List<BatchResult> listened = new ArrayList<BatchResult>();
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 95; id < 98; id++) {
+        executor.update(insertStatement, new Author(id, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(1, results.get(1).getParameterObjects().size());
+
+      config.setBatchResultListener(new BatchResultListener() {
+        @Override
+        public void batchExecuted(BatchResult batchResult) {
+          listened.add(batchResult);
+        }
+      });
+      for (int id = 92; id < 95; id++) {
+        executor.update(insertStatement, new Author(id, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      }
+      assertEquals(1, listened.size());
+      results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(2, listened.size());
+      assertEquals(1, listened.get(1).getParameterObjects().size());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldSendMultiRowInserts() throws Exception {
+    config.setMultiRowInsertSize(2);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      for (int id = 95; id < 98; id++) {
+        executor.update(insertStatement, new Author(id, "someone" + id, "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(3, results.get(0).getParameterObjects().size());
+      assertArrayEquals(new int[] { 1, 1, 1 }, results.get(0).getUpdateCounts());
+      for (int id = 95; id < 98; id++) {
+        List<Author> authors = executor.query(selectStatement, id, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        assertEquals(1, authors.size());
+        assertEquals("someone" + id, authors.get(0).getUsername());
+      }
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldPipelineAutomaticFlushes() throws Exception {
+    config.setBatchFlushSize(2);
+    config.setBatchPipelineDepth(1);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 93; id < 98; id++) {
+        executor.update(insertStatement, new Author(id, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(2, results.get(1).getParameterObjects().size());
+      assertEquals(1, results.get(2).getParameterObjects().size());
+
+      // a duplicate key fails in the background, and is thrown by the next flush
+      executor.update(insertStatement, new Author(92, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(101, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      try {
+        executor.flushStatements();
+        fail();
+      } catch (BatchExecutorException e) {
+        assertEquals("insertAuthor", e.getFailingStatementId());
+      }
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new BatchExecutor(config,transaction);
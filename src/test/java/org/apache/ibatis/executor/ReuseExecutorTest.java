@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,7 +15,20 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Statement;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.StatementCacheScope;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.junit.Test;
 
 public class ReuseExecutorTest extends BaseExecutorTest {
@@ -30,6 +43,56 @@ public class ReuseExecutorTest extends BaseExecutorTest {
     super.shouldFetchPostWithBlogWithCompositeKey();
   }
 
+  @Test
+  public void shouldCloseTheLeastRecentlyUsedStatement() throws Exception {
+    config.setStatementCacheSize(1);
+    ReuseExecutor executor = (ReuseExecutor) createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectAuthor = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      MappedStatement selectAuthors = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      executor.query(selectAuthor, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      executor.query(selectAuthor, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      executor.query(selectAuthors, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      StatementCache statementCache = executor.getStatementCache();
+      assertEquals(1, statementCache.getSize());
+      assertEquals(1, statementCache.getHitCount());
+      assertEquals(2, statementCache.getMissCount());
+      assertEquals(1, statementCache.getEvictionCount());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldEvictStatementsKeptOnAPooledConnection() throws Exception {
+    config.setStatementCacheSize(1);
+    config.setStatementCacheScope(StatementCacheScope.CONNECTION);
+    PooledDataSource pooledDataSource = new PooledDataSource((UnpooledDataSource) ds);
+    pooledDataSource.setPoolMaximumActiveConnections(1);
+    try {
+      MappedStatement selectAuthor = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      MappedStatement selectAuthors = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+
+      ReuseExecutor first = (ReuseExecutor) createExecutor(new JdbcTransaction(pooledDataSource, null, false));
+      first.query(selectAuthor, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      StatementCache statementCache = first.getStatementCache();
+      Statement statement = statementCache.get(selectAuthor.getBoundSql(101).getSql());
+      first.close(false);
+      assertFalse(statement.isClosed());
+
+      ReuseExecutor second = (ReuseExecutor) createExecutor(new JdbcTransaction(pooledDataSource, null, false));
+      second.query(selectAuthors, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertSame(statementCache, second.getStatementCache());
+      second.close(false);
+      assertTrue(statement.isClosed());
+      assertEquals(1, statementCache.getSize());
+      assertEquals(1, statementCache.getEvictionCount());
+    } finally {
+      pooledDataSource.forceCloseAll();
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new ReuseExecutor(config,transaction);
@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Statement;
+
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+  @Test
+  public void shouldCloseTheLeastRecentlyUsedStatement() throws Exception {
+    StatementCache cache = new StatementCache(2);
+    Statement first = mock(Statement.class);
+    Statement second = mock(Statement.class);
+    Statement third = mock(Statement.class);
+    cache.put("first", first);
+    cache.put("second", second);
+    assertSame(first, cache.get("first"));
+    cache.put("third", third);
+    assertNull(cache.get("second"));
+    verify(second).close();
+    verify(first, never()).close();
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getEvictionCount());
+  }
+
+  @Test
+  public void shouldEvictWhenTheMaximumSizeIsReduced() throws Exception {
+    StatementCache cache = new StatementCache();
+    Statement first = mock(Statement.class);
+    Statement second = mock(Statement.class);
+    cache.put("first", first);
+    cache.put("second", second);
+    cache.setMaxSize(1);
+    verify(first).close();
+    assertSame(second, cache.get("second"));
+    cache.clear();
+    verify(second).close();
+    assertEquals(0, cache.getSize());
+  }
+
+}
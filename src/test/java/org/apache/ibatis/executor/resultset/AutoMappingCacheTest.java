@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class AutoMappingCacheTest {
+
+  @Test
+  public void shouldClearWhenFull() {
+    AutoMappingCache cache = new AutoMappingCache(2);
+    AutoMappingCache.Entry entry = entry();
+    cache.put(key("a"), entry);
+    cache.put(key("b"), entry);
+    assertSame(entry, cache.get(key("a")));
+    cache.put(key("b"), entry);
+    assertEquals(2, cache.getSize());
+    cache.put(key("c"), entry);
+    assertEquals(1, cache.getSize());
+    assertNull(cache.get(key("a")));
+    assertSame(entry, cache.get(key("c")));
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void shouldBeClearedWhenTheMappingSettingsChange() {
+    Configuration configuration = new Configuration();
+    AutoMappingCache cache = configuration.getAutoMappingCache();
+    assertEquals(256, cache.getMaxSize());
+    cache.put(key("a"), entry());
+    configuration.setMapUnderscoreToCamelCase(true);
+    assertEquals(0, cache.getSize());
+    cache.put(key("a"), entry());
+    configuration.setReadColumnsByIndex(true);
+    assertEquals(0, cache.getSize());
+    cache.put(key("a"), entry());
+    configuration.setAutoMappingCacheSize(0);
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getMaxSize());
+  }
+
+  private static CacheKey key(String resultMapId) {
+    CacheKey cacheKey = new CacheKey();
+    cacheKey.update(resultMapId);
+    return cacheKey;
+  }
+
+  private static AutoMappingCache.Entry entry() {
+    return new AutoMappingCache.Entry(Collections.<DefaultResultSetHandler.UnMappedColumnAutoMapping>emptyList(),
+        Collections.<AutoMappingCache.UnknownColumn>emptyList());
+  }
+
+}
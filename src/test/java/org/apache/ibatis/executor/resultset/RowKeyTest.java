@@ -0,0 +1,78 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class RowKeyTest {
+
+  private final RowKey.Builder builder = new RowKey.Builder();
+
+  @Test
+  public void shouldBeEqualForEqualValues() {
+    RowKey key1 = key("blog", "ID", 1, "DATA", new byte[] { 1, 2 });
+    RowKey key2 = key("blog", "ID", 1, "DATA", new byte[] { 1, 2 });
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertFalse(key1.equals(key("blog", "ID", 1, "DATA", new byte[] { 1, 3 })));
+    assertFalse(key1.equals(key("blog", "ID", 1)));
+    assertFalse(key("blog", "ID", 1).equals(key("author", "ID", 1)));
+  }
+
+  @Test
+  public void shouldReturnTheNullKeyWithoutValues() {
+    assertSame(RowKey.NULL_ROW_KEY, key("blog"));
+    assertSame(RowKey.NULL_ROW_KEY, RowKey.combine(key("post", "ID", 1), RowKey.NULL_ROW_KEY));
+    assertSame(RowKey.NULL_ROW_KEY, RowKey.combine(RowKey.NULL_ROW_KEY, key("blog", "ID", 1)));
+  }
+
+  @Test
+  public void shouldCombineWithTheParentKey() {
+    RowKey post = key("post", "ID", 1);
+    RowKey combined = RowKey.combine(post, key("blog", "ID", 1));
+    assertEquals(combined, RowKey.combine(key("post", "ID", 1), key("blog", "ID", 1)));
+    assertFalse(combined.equals(post));
+    assertFalse(combined.equals(RowKey.combine(post, key("blog", "ID", 2))));
+    assertEquals(RowKey.combine(combined, key("author", "ID", 3)),
+        RowKey.combine(RowKey.combine(key("post", "ID", 1), key("blog", "ID", 1)), key("author", "ID", 3)));
+  }
+
+  @Test
+  public void shouldStartOverAfterReset() {
+    builder.update("blog");
+    builder.update("ID");
+    builder.reset();
+    assertEquals(key("blog", "ID", 1), key("blog", "ID", 1));
+    Object[] values = new Object[41];
+    values[0] = "blog";
+    for (int i = 1; i < values.length; i++) {
+      values[i] = i;
+    }
+    assertEquals(key(values), key(values));
+  }
+
+  private RowKey key(Object... values) {
+    for (Object value : values) {
+      builder.update(value);
+    }
+    return builder.build();
+  }
+
+}
@@ -91,6 +91,60 @@ public class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  public void shouldFillUpToMinimumIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolHousekeepingPeriod(10);
+      long deadline = System.currentTimeMillis() + 5000;
+      while (ds.getPoolState().getIdleConnectionCount() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotPingOnCheckoutWhenHousekeeperIsEnabled() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM NO_SUCH_TABLE");
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      ds.setPoolHousekeepingPeriod(60000);
+      Connection c = ds.getConnection();
+      Thread.sleep(5);
+      c.close();
+      c = ds.getConnection();
+      c.close();
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseConnectionPastMaximumLifetimeOnReturn() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumLifetime(1);
+      Connection c = ds.getConnection();
+      Thread.sleep(5);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Ignore("See the comments")
   @Test
   public void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
@@ -0,0 +1,125 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.LambdaMethodInvoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleGetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleMethodInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class MethodHandleReflectorFactoryTest {
+
+  @Test
+  public void shouldUseGeneratedAccessorsForPublicMethods() throws Exception {
+    Reflector reflector = new MethodHandleReflectorFactory().findForClass(Author.class);
+    assertTrue(reflector.getGetInvoker("username") instanceof LambdaMethodInvoker);
+    assertTrue(reflector.getSetInvoker("id") instanceof LambdaMethodInvoker);
+    Author author = new Author();
+    reflector.getSetInvoker("id").invoke(author, new Object[] { 101 });
+    reflector.getSetInvoker("username").invoke(author, new Object[] { "jim" });
+    reflector.getSetInvoker("favouriteSection").invoke(author, new Object[] { Section.NEWS });
+    assertEquals(101, reflector.getGetInvoker("id").invoke(author, null));
+    assertEquals("jim", reflector.getGetInvoker("username").invoke(author, null));
+    assertSame(Section.NEWS, reflector.getGetInvoker("favouriteSection").invoke(author, null));
+  }
+
+  @Test
+  public void shouldUseMethodHandlesForNonPublicMembers() throws Exception {
+    Reflector reflector = new MethodHandleReflectorFactory().findForClass(Bean.class);
+    assertTrue(reflector.getGetInvoker("name") instanceof MethodHandleMethodInvoker);
+    assertTrue(reflector.getGetInvoker("count") instanceof MethodHandleGetFieldInvoker);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("name").invoke(bean, new Object[] { "bean" });
+    reflector.getSetInvoker("count").invoke(bean, new Object[] { 3 });
+    assertEquals("bean", reflector.getGetInvoker("name").invoke(bean, null));
+    assertEquals(3, reflector.getGetInvoker("count").invoke(bean, null));
+    assertEquals("fixed", reflector.getGetInvoker("fixed").invoke(bean, null));
+  }
+
+  @Test
+  public void shouldKeepTheInvokerTypes() {
+    Reflector reflector = new MethodHandleReflectorFactory().findForClass(Bean.class);
+    assertTrue(reflector.getGetInvoker("name") instanceof MethodInvoker);
+    assertTrue(reflector.getGetInvoker("count") instanceof GetFieldInvoker);
+    assertTrue(reflector.getSetInvoker("count") instanceof SetFieldInvoker);
+    MetaClass metaClass = MetaClass.forClass(Bean.class, new MethodHandleReflectorFactory());
+    assertEquals(String.class, metaClass.getGetterType("items[0]"));
+  }
+
+  @Test
+  public void shouldWrapExceptionsLikeReflection() throws Exception {
+    Reflector reflector = new MethodHandleReflectorFactory().findForClass(Bean.class);
+    try {
+      reflector.getGetInvoker("failing").invoke(new Bean(), null);
+      fail();
+    } catch (InvocationTargetException e) {
+      assertTrue(e.getTargetException() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void shouldSetAndGetPropertiesThroughMetaObject() {
+    Configuration configuration = new Configuration();
+    configuration.setReflectorFactory(new MethodHandleReflectorFactory());
+    Author author = new Author();
+    MetaObject metaObject = configuration.newMetaObject(author);
+    metaObject.setValue("id", 1);
+    metaObject.setValue("email", "jim@ibatis.apache.org");
+    assertEquals(1, author.getId());
+    assertEquals("jim@ibatis.apache.org", metaObject.getValue("email"));
+    assertNull(metaObject.getValue("bio"));
+  }
+
+  static class Bean {
+    private String name;
+    private int count;
+    private final String fixed = "fixed";
+    private List<String> items = new ArrayList<String>();
+
+    String getName() {
+      return name;
+    }
+
+    void setName(String name) {
+      this.name = name;
+    }
+
+    public List<String> getItems() {
+      return items;
+    }
+
+    public String getFailing() {
+      throw new IllegalStateException();
+    }
+  }
+
+}
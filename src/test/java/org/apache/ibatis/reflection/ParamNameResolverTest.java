@@ -0,0 +1,166 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class ParamNameResolverTest {
+
+  @Test
+  public void shouldReturnTheSameEntriesInTheSameOrderAsAHashMap() throws Exception {
+    assertNamedParams("twoParams", new Object[] { 1, "a" }, map("0", 1, "param1", 1, "1", "a", "param2", "a"));
+    assertNamedParams("annotated", new Object[] { 1, "a" }, map("id", 1, "param1", 1, "name", "a", "param2", "a"));
+    assertNamedParams("withRowBounds", new Object[] { 1, RowBounds.DEFAULT, "a" }, map("id", 1, "param1", 1, "name", "a", "param2", "a"));
+    assertNamedParams("genericName", new Object[] { 1, "a" }, map("param2", 1, "param1", 1, "1", "a"));
+    assertNamedParams("sameName", new Object[] { 1, "a" }, map("id", "a", "param1", 1, "param2", "a"));
+    assertNamedParams("single", new Object[] { 1 }, map("id", 1, "param1", 1));
+  }
+
+  @Test
+  public void shouldNotWrapASingleParameter() throws Exception {
+    ParamNameResolver resolver = resolver("unannotated");
+    assertEquals(1, resolver.getNamedParams(new Object[] { 1 }));
+    assertNull(resolver.getNamedParams(null));
+  }
+
+  @Test
+  public void shouldReadFromTheArguments() throws Exception {
+    Object[] args = { 1, "a" };
+    Map<?, ?> params = (Map<?, ?>) resolver("annotated").getNamedParams(args);
+    assertTrue(params instanceof ParamMap);
+    assertTrue(params.containsKey("name"));
+    assertFalse(params.containsKey("other"));
+    assertEquals(4, params.size());
+    assertEquals("a", params.get("param2"));
+    MetaObject metaObject = SystemMetaObject.forObject(params);
+    assertEquals(1, metaObject.getValue("id"));
+    assertTrue(metaObject.hasGetter("param1"));
+  }
+
+  @Test
+  public void shouldFailLikeParamMapForUnknownNames() throws Exception {
+    Map<?, ?> params = (Map<?, ?>) resolver("annotated").getNamedParams(new Object[] { 1, "a" });
+    ParamMap<Object> expected = new ParamMap<Object>();
+    expected.putAll(map("id", 1, "param1", 1, "name", "a", "param2", "a"));
+    try {
+      expected.get("other");
+      fail();
+    } catch (BindingException e) {
+      try {
+        params.get("other");
+        fail();
+      } catch (BindingException actual) {
+        assertEquals(e.getMessage(), actual.getMessage());
+      }
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldBehaveLikeAHashMapOnceModified() throws Exception {
+    Object[] args = { 1, "a" };
+    Map<String, Object> params = (Map<String, Object>) resolver("annotated").getNamedParams(args);
+    params.put("id", 2);
+    params.put("extra", "x");
+    params.remove("param2");
+    assertEquals(1, args[0]);
+    assertEquals(2, params.get("id"));
+    assertEquals("x", params.get("extra"));
+    assertFalse(params.containsKey("param2"));
+    assertEquals(map("id", 2, "param1", 1, "name", "a", "extra", "x"), params);
+  }
+
+  @Test
+  public void shouldSerializeAsParamMap() throws Exception {
+    Object[] args = { 1, "a" };
+    Object params = resolver("annotated").getNamedParams(args);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(params);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertSame(ParamMap.class, copy.getClass());
+    assertEquals(params, copy);
+  }
+
+  private void assertNamedParams(String methodName, Object[] args, Map<String, Object> expected) throws Exception {
+    Map<?, ?> actual = (Map<?, ?>) resolver(methodName).getNamedParams(args);
+    for (Map.Entry<String, Object> entry : expected.entrySet()) {
+      assertEquals(methodName, entry.getValue(), actual.get(entry.getKey()));
+    }
+    assertEquals(methodName, expected.size(), actual.size());
+    // the order in which a ParamMap used to be filled
+    assertEquals(methodName, new ArrayList<String>(expected.keySet()), new ArrayList<Object>(actual.keySet()));
+    assertEquals(methodName, expected, actual);
+  }
+
+  private ParamNameResolver resolver(String methodName) throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setUseActualParamName(false);
+    for (Method method : Mapper.class.getMethods()) {
+      if (method.getName().equals(methodName)) {
+        return new ParamNameResolver(configuration, method);
+      }
+    }
+    throw new IllegalArgumentException(methodName);
+  }
+
+  private static Map<String, Object> map(Object... keysAndValues) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return map;
+  }
+
+  interface Mapper {
+    void twoParams(int id, String name);
+
+    void annotated(@Param("id") int id, @Param("name") String name);
+
+    void withRowBounds(@Param("id") int id, RowBounds rowBounds, @Param("name") String name);
+
+    void genericName(@Param("param2") int id, String name);
+
+    void sameName(@Param("id") int id, @Param("id") String name);
+
+    void single(@Param("id") int id);
+
+    void unannotated(int id);
+  }
+
+}
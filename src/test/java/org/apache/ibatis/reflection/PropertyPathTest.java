@@ -0,0 +1,152 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.wrapper.MapWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PropertyPathTest {
+
+    @Test
+    public void shouldCacheParsedPaths() {
+        PropertyPath path = PropertyPath.forName("richType.richList[0]");
+        assertSame(path, PropertyPath.forName("richType.richList[0]"));
+        assertEquals("richType", path.getRootName());
+        assertEquals("items", PropertyPath.forName("items[0].name").getRootName());
+    }
+
+    @Test
+    public void shouldGetAndSetThroughBeansAndMaps() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        Blog blog = new Blog(1, "Blog", new Author(101), new ArrayList<org.apache.ibatis.domain.blog.Post>());
+        map.put("blog", blog);
+        MetaObject meta = SystemMetaObject.forObject(map);
+        meta.setValue("blog.author.username", "jim");
+        meta.setValue("blog.author.favouriteSection", Section.NEWS);
+        assertEquals("jim", blog.getAuthor().getUsername());
+        assertEquals("jim", meta.getValue("blog.author.username"));
+        assertEquals(Section.NEWS, meta.getValue(PropertyPath.forName("blog.author.favouriteSection")));
+        assertNull(meta.getValue("blog.author.bio"));
+        assertNull(meta.getValue("other.author.bio"));
+    }
+
+    @Test
+    public void shouldResolveTheSamePathOnDifferentClasses() {
+        PropertyPath path = PropertyPath.forName("id");
+        assertEquals(101, SystemMetaObject.forObject(new Author(101)).getValue(path));
+        assertEquals(7, SystemMetaObject.forObject(new Blog(7, "Blog", null, null)).getValue(path));
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("id", "map");
+        assertEquals("map", SystemMetaObject.forObject(map).getValue(path));
+    }
+
+    @Test
+    public void shouldGetIndexedValues() {
+        RichType rich = new RichType();
+        rich.setRichType(new RichType());
+        List<Object> list = new ArrayList<Object>();
+        list.add("a");
+        rich.getRichType().setRichList(list);
+        rich.getRichMap().put("key", rich.getRichType());
+        rich.getRichMap().put("ints", new int[] { 4, 5 });
+        rich.getRichMap().put("strings", new String[] { "a", "b" });
+        MetaObject meta = SystemMetaObject.forObject(rich);
+        assertEquals("a", meta.getValue("richType.richList[0]"));
+        assertEquals(5, meta.getValue("richMap.ints[1]"));
+        assertEquals("b", meta.getValue("richMap.strings[1]"));
+        assertSame(rich.getRichType(), meta.getValue("richMap[key]"));
+        assertSame(list, meta.getValue("richMap[key].richList"));
+        try {
+            meta.getValue("richType.richProperty[0]");
+            fail();
+        } catch (ReflectionException e) {
+            assertEquals("The 'richProperty' property of null is not a List or Array.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldInstantiateMissingIntermediateObjects() {
+        RichType rich = new RichType();
+        MetaObject meta = SystemMetaObject.forObject(rich);
+        meta.setValue("richType.richType.richField", null);
+        assertNull(rich.getRichType());
+        meta.setValue("richType.richType.richProperty", "value");
+        assertEquals("value", rich.getRichType().getRichType().getRichProperty());
+        meta.setValue("richMap.nested.name", "map");
+        assertEquals("map", ((Map) rich.getRichMap().get("nested")).get("name"));
+        try {
+            meta.setValue("richType.missing", "value");
+            fail();
+        } catch (ReflectionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("There is no setter for property named 'missing'"));
+        }
+    }
+
+    @Test
+    public void shouldUseCustomWrappers() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("x-author", new Author(101));
+        MetaObject meta = MetaObject.forObject(map, SystemMetaObject.DEFAULT_OBJECT_FACTORY, new PrefixingWrapperFactory(), new DefaultReflectorFactory());
+        meta.setValue("name", "jim");
+        assertEquals("jim", map.get("x-name"));
+        assertEquals("jim", meta.getValue("name"));
+        assertEquals(101, meta.getValue("author.id"));
+    }
+
+    private static class PrefixingWrapperFactory implements ObjectWrapperFactory {
+        @Override
+        public boolean hasWrapperFor(Object object) {
+            return object instanceof Map;
+        }
+
+        @Override
+        public ObjectWrapper getWrapperFor(MetaObject metaObject, Object object) {
+            return new MapWrapper(metaObject, (Map<String, Object>) object) {
+                @Override
+                public Object get(org.apache.ibatis.reflection.property.PropertyTokenizer prop) {
+                    return super.get(new org.apache.ibatis.reflection.property.PropertyTokenizer(prefix(prop.getIndexedName())));
+                }
+
+                @Override
+                public void set(org.apache.ibatis.reflection.property.PropertyTokenizer prop, Object value) {
+                    super.set(new org.apache.ibatis.reflection.property.PropertyTokenizer(prefix(prop.getIndexedName())), value);
+                }
+            };
+        }
+
+        private static String prefix(String name) {
+            return name.startsWith("x-") ? name : "x-" + name;
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class ExpressionCompilerTest {
+
+  @Test
+  public void shouldCompileTheCommonSubset() {
+    String[] expressions = {
+        "id", "author.username", "id != null", "id == null and username != null", "id > 0 || !(username == null)",
+        "not (id lt 10) and id gte -5", "ids.size() > 0", "ids != null and !ids.isEmpty()", "name == \"jim\"",
+        "name eq 'jim'", "rate <= 1.5", "flag == true or flag == false", "_parameter.id neq 3"
+    };
+    for (String expression : expressions) {
+      assertNotNull(expression, ExpressionCompiler.compile(expression));
+    }
+  }
+
+  @Test
+  public void shouldLeaveOtherExpressionsToOgnl() {
+    String[] expressions = {
+        "id + 1", "ids[0]", "ids.get(0)", "type == 'Y'", "@java.lang.Math@max(1, 2)", "#this", "id in {1, 2}",
+        "name.trim()", "id = 1", "id & 1", "010", "1L", "'a\\'b'", "(id", "id > ", "size()", "name instanceof String"
+    };
+    for (String expression : expressions) {
+      assertNull(expression, ExpressionCompiler.compile(expression));
+    }
+  }
+
+  @Test
+  public void shouldEvaluateLikeOgnl() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Blog blog = new Blog(1, "Blog", author, new ArrayList<org.apache.ibatis.domain.blog.Post>());
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("id", 5);
+    map.put("name", "jim");
+    map.put("rate", 1.25d);
+    map.put("ids", new ArrayList<Integer>(Arrays.asList(1, 2, 3)));
+    map.put("empty", new ArrayList<Object>());
+    map.put("nested", map("size", 3, "value", "v"));
+    map.put("missing", null);
+    String[] expressions = {
+        "id", "id != null", "id == 5", "id > 4 and id < 6", "id >= 5 && id <= 5", "id gt 10 or name",
+        "name == 'jim'", "name != \"bob\"", "rate > 1", "rate == 1.25", "ids.size() > 2", "ids.isEmpty()",
+        "empty.isEmpty() and name", "!empty.isEmpty()", "not missing", "missing == null", "nested.value == \"v\"",
+        "nested.size", "nested.size()", "unknown == null", "id == -5 or id == 5", "(id == 1 or id == 5) and name != null",
+        "_parameter.name", "_databaseId == null", "name.isEmpty()", "id == '05'"
+    };
+    for (String expression : expressions) {
+      assertSameValue(expression, map);
+    }
+    String[] beanExpressions = {
+        "id", "author.username", "author.username == 'jim'", "author.bio.isEmpty()", "author.favouriteSection != null",
+        "posts.isEmpty() and title != null", "author.id > 100", "author != null and author.email != null",
+        "_parameter.title == 'Blog'"
+    };
+    for (String expression : beanExpressions) {
+      assertSameValue(expression, blog);
+    }
+  }
+
+  @Test
+  public void shouldLetOgnlReportErrors() {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("missing", null);
+    try {
+      OgnlCache.getValue("missing.name == null", bindings(map, true));
+      fail();
+    } catch (BuilderException e) {
+      // expected, like OGNL
+    }
+  }
+
+  @Test
+  public void shouldNotCompileWhenDisabled() {
+    Map<String, Object> bindings = bindings(map("id", 1), false);
+    assertSame(Boolean.TRUE, OgnlCache.getValue("id == 1", bindings));
+    assertEquals(false, ((DynamicContext.ContextMap) bindings).isCompileExpressions());
+  }
+
+  private void assertSameValue(String expression, Object parameterObject) {
+    assertNotNull(expression, ExpressionCompiler.compile(expression));
+    Object expected = OgnlCache.getValue(expression, bindings(parameterObject, false));
+    Object actual = OgnlCache.getValue(expression, bindings(parameterObject, true));
+    assertEquals(expression, expected, actual);
+  }
+
+  private Map<String, Object> bindings(Object parameterObject, boolean compileExpressions) {
+    Configuration configuration = new Configuration();
+    configuration.setCompileExpressions(compileExpressions);
+    return new DynamicContext(configuration, parameterObject).getBindings();
+  }
+
+  private static Map<String, Object> map(Object... keysAndValues) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return map;
+  }
+
+}
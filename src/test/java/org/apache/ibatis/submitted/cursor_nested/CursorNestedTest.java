@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -95,6 +95,36 @@ public class CursorNestedTest {
         Assert.assertFalse(usersCursor.isOpen());
     }
 
+    @Test
+    public void shouldCompleteCollectionsWithoutResultOrdered() {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+
+        try {
+            Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsersWithoutResultOrdered");
+
+            Iterator<User> iterator = usersCursor.iterator();
+
+            User user = iterator.next();
+            Assert.assertEquals("User1", user.getName());
+            Assert.assertEquals(2, user.getGroups().size());
+            Assert.assertEquals(3, user.getRoles().size());
+
+            user = iterator.next();
+            Assert.assertEquals("User2", user.getName());
+            Assert.assertEquals(1, user.getGroups().size());
+            Assert.assertEquals(3, user.getRoles().size());
+
+            Assert.assertTrue(iterator.hasNext());
+            iterator.next();
+            Assert.assertTrue(iterator.hasNext());
+            iterator.next();
+            Assert.assertFalse(iterator.hasNext());
+            Assert.assertTrue(usersCursor.isConsumed());
+        } finally {
+            sqlSession.close();
+        }
+    }
+
     @Test
     public void testCursorWithRowBound() {
         SqlSession sqlSession = sqlSessionFactory.openSession();
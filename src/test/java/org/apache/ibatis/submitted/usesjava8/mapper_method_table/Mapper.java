@@ -0,0 +1,46 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.usesjava8.mapper_method_table;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+  @Select("select name from names where id = #{id}")
+  String selectName(int id);
+
+  @Insert("insert into names (name) values (#{name})")
+  int insertName(@Param("name") String name);
+
+  String unbound();
+
+  default String selectUpperName(int id) {
+    return selectName(id).toUpperCase();
+  }
+
+  default int insertNames(String... names) {
+    int count = 0;
+    for (String name : names) {
+      count += insertName(name);
+    }
+    return count;
+  }
+
+  default void fail() {
+    throw new IllegalStateException("default");
+  }
+}
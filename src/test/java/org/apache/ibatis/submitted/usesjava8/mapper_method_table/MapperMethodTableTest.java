@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.usesjava8.mapper_method_table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.GeneratedMapper;
+import org.apache.ibatis.binding.MapperProxy;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Test;
+
+public class MapperMethodTableTest {
+
+  @Test
+  public void shouldResolveMethodsWhenMapperIsRegistered() {
+    Configuration configuration = new Configuration();
+    configuration.addMapper(Mapper.class);
+    RecordingSqlSession recorder = new RecordingSqlSession(configuration);
+    Mapper mapper = configuration.getMapper(Mapper.class, recorder.sqlSession());
+    assertEquals("name", mapper.selectName(1));
+    assertEquals(1, mapper.insertName("jim"));
+    assertEquals("[selectOne " + Mapper.class.getName() + ".selectName, insert "
+        + Mapper.class.getName() + ".insertName]", recorder.calls.toString());
+  }
+
+  @Test
+  public void shouldInvokeDefaultMethods() {
+    Configuration configuration = new Configuration();
+    configuration.addMapper(Mapper.class);
+    RecordingSqlSession recorder = new RecordingSqlSession(configuration);
+    Mapper mapper = configuration.getMapper(Mapper.class, recorder.sqlSession());
+    assertEquals("NAME", mapper.selectUpperName(1));
+    assertEquals(2, mapper.insertNames("a", "b"));
+    assertEquals(0, mapper.insertNames());
+    try {
+      mapper.fail();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("default", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldInheritDefaultMethodsInGeneratedMappers() {
+    Configuration configuration = new Configuration();
+    configuration.setGenerateMapperClasses(true);
+    configuration.addMapper(Mapper.class);
+    RecordingSqlSession recorder = new RecordingSqlSession(configuration);
+    Mapper mapper = configuration.getMapper(Mapper.class, recorder.sqlSession());
+    assertTrue(mapper instanceof GeneratedMapper);
+    assertEquals("NAME", mapper.selectUpperName(1));
+    assertEquals(2, mapper.insertNames("a", "b"));
+  }
+
+  @Test
+  public void shouldReportUnboundMethodsOnCall() {
+    Configuration configuration = new Configuration();
+    configuration.addMapper(Mapper.class);
+    Mapper mapper = configuration.getMapper(Mapper.class, new RecordingSqlSession(configuration).sqlSession());
+    try {
+      mapper.unbound();
+      fail();
+    } catch (BindingException e) {
+      assertTrue(e.getMessage().startsWith("Invalid bound statement (not found)"));
+    }
+  }
+
+  @Test
+  public void shouldKeepObjectMethodsOnTheProxy() {
+    Configuration configuration = new Configuration();
+    configuration.addMapper(Mapper.class);
+    Mapper mapper = configuration.getMapper(Mapper.class, new RecordingSqlSession(configuration).sqlSession());
+    assertTrue(mapper.toString().startsWith(MapperProxy.class.getName()));
+  }
+
+  private static class RecordingSqlSession implements InvocationHandler {
+    private final Configuration configuration;
+    private final List<String> calls = new ArrayList<String>();
+
+    RecordingSqlSession(Configuration configuration) {
+      this.configuration = configuration;
+    }
+
+    SqlSession sqlSession() {
+      return (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSession.class }, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (method.getName().equals("getConfiguration")) {
+        return configuration;
+      }
+      calls.add(method.getName() + " " + args[0]);
+      if (method.getName().equals("selectOne")) {
+        return "name";
+      }
+      return 1;
+    }
+  }
+
+}